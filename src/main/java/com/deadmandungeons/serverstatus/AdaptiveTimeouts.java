@@ -0,0 +1,172 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Derives the timeout of requests to each server from the durations of its recent successful requests,
+ * so that a server that stops answering costs about as long as its slowest normal requests rather than a fixed timeout.
+ * <p>
+ * The mean and variance of the request durations of each server are estimated with exponentially weighted moving averages.
+ * The timeout is the estimated 99th percentile, which is the mean plus 2.33 standard deviations, times the multiplier,
+ * bounded by the floor and the ceiling. Until a server has enough samples, and after each timeout until the next success,
+ * a longer timeout is used so that a server that is slower than estimated is not cut off repeatedly:
+ * the ceiling before the first samples, and twice the previous timeout after each timeout.
+ * <p>
+ * At most the {@link #maxServers(int) maximum} amount of servers are estimated, and the other servers use the ceiling,
+ * so the estimates stay bounded when many servers are requested once and never {@link #remove(Address) removed}.
+ * <p>
+ * <b>Note:</b> The timeouts should be configured before they are shared between threads.
+ */
+public class AdaptiveTimeouts {
+
+    private static final int DEFAULT_FLOOR = 250;
+    private static final int DEFAULT_CEILING = 6000;
+    private static final double DEFAULT_MULTIPLIER = 2;
+    // The weight of each new sample, so the estimate reflects roughly the last 1 / ALPHA samples
+    private static final double ALPHA = 0.125;
+    private static final double P99_DEVIATIONS = 2.33;
+    private static final int MIN_SAMPLES = 4;
+    private static final int DEFAULT_MAX_SERVERS = 10000;
+
+    private final ConcurrentMap<Address, Estimate> estimates = new ConcurrentHashMap<>();
+
+    private int floor = DEFAULT_FLOOR;
+    private int ceiling = DEFAULT_CEILING;
+    private double multiplier = DEFAULT_MULTIPLIER;
+    private int maxServers = DEFAULT_MAX_SERVERS;
+
+
+    /**
+     * @param floor the minimum timeout in milliseconds (250 by default)
+     * @param ceiling the maximum timeout in milliseconds, which is also used for servers without enough samples (6000 by default)
+     * @return this AdaptiveTimeouts instance
+     * @throws IllegalArgumentException if floor is less than 1 or ceiling is less than floor
+     */
+    public AdaptiveTimeouts bounds(int floor, int ceiling) throws IllegalArgumentException {
+        if (floor < 1 || ceiling < floor) {
+            throw new IllegalArgumentException("floor must be at least 1 and ceiling must be at least floor");
+        }
+        this.floor = floor;
+        this.ceiling = ceiling;
+        return this;
+    }
+
+    /**
+     * @param multiplier the factor that the estimated 99th percentile duration is multiplied by (2 by default)
+     * @return this AdaptiveTimeouts instance
+     * @throws IllegalArgumentException if multiplier is less than 1
+     */
+    public AdaptiveTimeouts multiplier(double multiplier) throws IllegalArgumentException {
+        if (!(multiplier >= 1)) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * @param maxServers the maximum amount of servers to estimate, beyond which new servers use the ceiling (10000 by default)
+     * @return this AdaptiveTimeouts instance
+     * @throws IllegalArgumentException if maxServers is less than 1
+     */
+    public AdaptiveTimeouts maxServers(int maxServers) throws IllegalArgumentException {
+        if (maxServers < 1) {
+            throw new IllegalArgumentException("maxServers must be at least 1");
+        }
+        this.maxServers = maxServers;
+        return this;
+    }
+
+
+    /**
+     * @param address the address of the server
+     * @return the timeout in milliseconds for the next request to the given server
+     */
+    public int getTimeout(Address address) {
+        Estimate estimate = estimates.get(address);
+        return (estimate != null ? estimate.getTimeout() : ceiling);
+    }
+
+    /**
+     * Record the duration of a successful request to the given server
+     * @param address the address of the server
+     * @param duration the duration of the request in milliseconds
+     */
+    public void onSuccess(Address address, long duration) {
+        Estimate estimate = estimates.get(address);
+        if (estimate == null) {
+            if (estimates.size() >= maxServers) {
+                return;
+            }
+            Estimate newEstimate = new Estimate();
+            estimate = estimates.putIfAbsent(address, newEstimate);
+            if (estimate == null) {
+                estimate = newEstimate;
+            }
+        }
+        estimate.onSuccess(duration);
+    }
+
+    /**
+     * Record a failed request to the given server, which doubles its timeout until its next successful request
+     * if the request timed out
+     * @param address the address of the server
+     * @param failure the failure of the request
+     */
+    public void onFailure(Address address, IOException failure) {
+        boolean timedOut = (failure instanceof SocketTimeoutException || failure.getCause() instanceof SocketTimeoutException);
+        Estimate estimate = estimates.get(address);
+        if (timedOut && estimate != null) {
+            estimate.onTimeout();
+        }
+    }
+
+    /**
+     * @param address the address of the server whose estimate should be forgotten
+     */
+    public void remove(Address address) {
+        estimates.remove(address);
+    }
+
+
+    private class Estimate {
+
+        private double mean;
+        private double variance;
+        private int samples;
+        private int backoff;
+
+        private synchronized void onSuccess(long duration) {
+            if (samples++ == 0) {
+                mean = duration;
+                variance = 0;
+            } else {
+                double difference = duration - mean;
+                mean += ALPHA * difference;
+                variance = (1 - ALPHA) * (variance + ALPHA * difference * difference);
+            }
+            backoff = 0;
+        }
+
+        private synchronized void onTimeout() {
+            if (backoff < 16) {
+                backoff++;
+            }
+        }
+
+        private synchronized int getTimeout() {
+            if (samples < MIN_SAMPLES) {
+                return ceiling;
+            }
+            double timeout = (mean + P99_DEVIATIONS * Math.sqrt(variance)) * multiplier * (1 << backoff);
+            return (int) Math.max(floor, Math.min(ceiling, timeout));
+        }
+
+    }
+
+}
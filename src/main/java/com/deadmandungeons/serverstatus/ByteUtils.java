@@ -1,12 +1,40 @@
 package com.deadmandungeons.serverstatus;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
 
 /**
  * Contains various utility methods for manipulating bytes, byte arrays, and byte streams
  */
 public class ByteUtils {
 
+    private static final char[] BASE64_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] BASE64_VALUES = new int[128];
+
+    private static final int[] HEX_VALUES = new int[128];
+
+    /**
+     * The initial hash of the 64-bit FNV-1a hash function
+     */
+    public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    static {
+        Arrays.fill(BASE64_VALUES, -1);
+        for (int i = 0; i < BASE64_CHARS.length; i++) {
+            BASE64_VALUES[BASE64_CHARS[i]] = i;
+        }
+        Arrays.fill(HEX_VALUES, -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = 10 + i;
+            HEX_VALUES['A' + i] = 10 + i;
+        }
+    }
+
     /**
      * Creates and returns a new array with the values of the original from index <code>a</code> to index <code>b</code>
      * and of size <code>(b-a)</code>.
@@ -116,5 +144,131 @@ public class ByteUtils {
         return b;
     }
 
+    /**
+     * @param hash the hash of the preceding values, or {@link #FNV_OFFSET_BASIS} for the first value
+     * @param value the value to add to the hash, such as a byte or a char
+     * @return the 64-bit FNV-1a hash of the preceding values followed by the given value
+     */
+    public static long fnv1a(long hash, int value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    /**
+     * @param data the bytes to hash
+     * @return the 64-bit FNV-1a hash of the given bytes
+     */
+    public static long fnv1a(byte[] data) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : data) {
+            hash = fnv1a(hash, b & 0xFF);
+        }
+        return hash;
+    }
+
+    /**
+     * Strictly decodes the base64 text starting at the given index, so that {@link #encodeBase64(byte[]) encoding}
+     * the decoded bytes reproduces exactly the same text.
+     * @param text the text containing base64
+     * @param start the index of the first base64 character in the text
+     * @return the decoded bytes, or <code>null</code> if the text is not canonical base64
+     */
+    public static byte[] decodeBase64(String text, int start) {
+        int length = text.length() - start;
+        if (length == 0 || length % 4 != 0) {
+            return null;
+        }
+        int padding = 0;
+        if (text.charAt(text.length() - 1) == '=') {
+            padding = (text.charAt(text.length() - 2) == '=' ? 2 : 1);
+        }
+        byte[] data = new byte[length / 4 * 3 - padding];
+        int dataIndex = 0;
+        for (int i = start; i < text.length(); i += 4) {
+            int chunk = 0;
+            int chars = (i + 4 == text.length() ? 4 - padding : 4);
+            for (int j = 0; j < 4; j++) {
+                int value = 0;
+                if (j < chars) {
+                    char c = text.charAt(i + j);
+                    value = (c < 128 ? BASE64_VALUES[c] : -1);
+                    if (value < 0) {
+                        return null;
+                    }
+                }
+                chunk = (chunk << 6) | value;
+            }
+            data[dataIndex++] = (byte) (chunk >> 16);
+            if (chars > 2) {
+                data[dataIndex++] = (byte) (chunk >> 8);
+            } else if ((chunk & 0xFFFF) != 0) {
+                return null;
+            }
+            if (chars > 3) {
+                data[dataIndex++] = (byte) chunk;
+            } else if ((chunk & 0xFF) != 0) {
+                return null;
+            }
+        }
+        return data;
+    }
+
+    public static String encodeBase64(byte[] data) {
+        char[] text = new char[(data.length + 2) / 3 * 4];
+        int textIndex = 0;
+        for (int i = 0; i < data.length; i += 3) {
+            int remaining = data.length - i;
+            int chunk = (data[i] & 0xFF) << 16;
+            if (remaining > 1) {
+                chunk |= (data[i + 1] & 0xFF) << 8;
+            }
+            if (remaining > 2) {
+                chunk |= data[i + 2] & 0xFF;
+            }
+            text[textIndex++] = BASE64_CHARS[(chunk >> 18) & 0x3F];
+            text[textIndex++] = BASE64_CHARS[(chunk >> 12) & 0x3F];
+            text[textIndex++] = (remaining > 1 ? BASE64_CHARS[(chunk >> 6) & 0x3F] : '=');
+            text[textIndex++] = (remaining > 2 ? BASE64_CHARS[chunk & 0x3F] : '=');
+        }
+        return new String(text);
+    }
+
+    /**
+     * Parses a UUID in either the hyphenated form of {@link UUID#toString()} or the same 32 hex digits without hyphens,
+     * directly into its two longs without any intermediate strings.
+     * @param text the UUID text
+     * @return the parsed UUID, or <code>null</code> if the text is not in either form
+     */
+    public static UUID parseUuid(String text) {
+        boolean hyphenated;
+        if (text.length() == 36) {
+            if (text.charAt(8) != '-' || text.charAt(13) != '-' || text.charAt(18) != '-' || text.charAt(23) != '-') {
+                return null;
+            }
+            hyphenated = true;
+        } else if (text.length() == 32) {
+            hyphenated = false;
+        } else {
+            return null;
+        }
+        long mostSigBits = 0;
+        long leastSigBits = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (hyphenated && (i == 8 || i == 13 || i == 18 || i == 23)) {
+                continue;
+            }
+            char c = text.charAt(i);
+            int value = (c < 128 ? HEX_VALUES[c] : -1);
+            if (value < 0) {
+                return null;
+            }
+            if (digits++ < 16) {
+                mostSigBits = (mostSigBits << 4) | value;
+            } else {
+                leastSigBits = (leastSigBits << 4) | value;
+            }
+        }
+        return new UUID(mostSigBits, leastSigBits);
+    }
 
-}
\ No newline at end of file
+}
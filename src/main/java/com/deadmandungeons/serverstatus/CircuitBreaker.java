@@ -0,0 +1,261 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.MinecraftPinger.InvalidServerResponse;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A circuit breaker for each server address, which stops requests to servers that keep failing so that they do not
+ * tie up the caller until they time out on every request.
+ * <p>
+ * The circuit of a server is closed while its requests succeed. Once the failure threshold of consecutive requests fail,
+ * the circuit opens, and every request fails immediately with a {@link CircuitOpenException} that has the last failure
+ * of the server as its cause. After the cool down, the circuit is half open, and a single trial request is let through.
+ * The circuit closes again if the trial succeeds, or opens for another cool down if it fails.
+ * <p>
+ * An {@link InvalidServerResponse} does not count as a failure, because the server is reachable.
+ * Only servers with failures are tracked, and the circuit of a server that has not been requested for the idle expiry
+ * is forgotten, so the memory used is proportional to the amount of recently failing servers.
+ * <p>
+ * <b>Note:</b> The circuit breaker should be configured before it is shared between threads.
+ */
+public class CircuitBreaker {
+
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    private static final long DEFAULT_COOL_DOWN_SECONDS = 60;
+    private static final long DEFAULT_IDLE_EXPIRY_SECONDS = 600;
+
+    private final ConcurrentMap<Address, Circuit> circuits = new ConcurrentHashMap<>();
+
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long coolDownNanos = TimeUnit.SECONDS.toNanos(DEFAULT_COOL_DOWN_SECONDS);
+    private long idleExpiryNanos = TimeUnit.SECONDS.toNanos(DEFAULT_IDLE_EXPIRY_SECONDS);
+    private final AtomicLong lastEvictionTime = new AtomicLong(System.nanoTime());
+
+
+    /**
+     * @param failureThreshold the amount of consecutive failures that opens the circuit of a server (3 by default)
+     * @return this CircuitBreaker instance
+     * @throws IllegalArgumentException if failureThreshold is less than 1
+     */
+    public CircuitBreaker failureThreshold(int failureThreshold) throws IllegalArgumentException {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        return this;
+    }
+
+    /**
+     * @param duration the time that the circuit of a server stays open before a trial request is let through (60 seconds by default)
+     * @param unit the time unit of the duration
+     * @return this CircuitBreaker instance
+     */
+    public CircuitBreaker coolDown(long duration, TimeUnit unit) {
+        this.coolDownNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Idle circuits are evicted at most once per idle expiry, when a server fails that has no circuit yet.
+     * An evicted circuit is closed, so the next request to its server is executed.
+     * @param duration the time after the last request to a server that its circuit is forgotten (10 minutes by default)
+     * @param unit the time unit of the duration
+     * @return this CircuitBreaker instance
+     */
+    public CircuitBreaker idleExpiry(long duration, TimeUnit unit) {
+        this.idleExpiryNanos = unit.toNanos(duration);
+        return this;
+    }
+
+
+    /**
+     * Execute the given request to the given server, unless the circuit of the server is open
+     * @param address the address of the server
+     * @param request the request to the server
+     * @return the result of the request
+     * @throws CircuitOpenException if the circuit of the server is open
+     * @throws IOException if the request failed
+     */
+    public <V> V execute(Address address, Callable<V> request) throws IOException {
+        Circuit circuit = circuits.get(address);
+        // The circuit whose trial this request is, or null if it is not a trial
+        Circuit trialCircuit = (circuit != null && circuit.acquire(address) ? circuit : null);
+
+        V result;
+        try {
+            result = request.call();
+        } catch (InvalidServerResponse e) {
+            onSuccess(address);
+            throw e;
+        } catch (IOException e) {
+            onFailure(address, trialCircuit, e);
+            throw e;
+        } catch (RuntimeException e) {
+            if (trialCircuit != null) {
+                trialCircuit.release();
+            }
+            throw e;
+        } catch (Exception e) {
+            onFailure(address, trialCircuit, e);
+            throw new IOException(e);
+        }
+        onSuccess(address);
+        return result;
+    }
+
+    /**
+     * @param address the address of the server
+     * @return the state of the circuit of the given server
+     */
+    public State getState(Address address) {
+        Circuit circuit = circuits.get(address);
+        return (circuit != null ? circuit.getState() : State.CLOSED);
+    }
+
+    /**
+     * Close the circuit of the given server and forget its failures
+     * @param address the address of the server
+     */
+    public void reset(Address address) {
+        circuits.remove(address);
+    }
+
+    /**
+     * @return the amount of servers whose circuit is tracked, because their recent requests failed
+     */
+    public int size() {
+        return circuits.size();
+    }
+
+
+    // The circuit is read again on completion, because it may have been created, evicted or reset during the request
+    private void onSuccess(Address address) {
+        Circuit circuit = circuits.get(address);
+        if (circuit != null) {
+            circuits.remove(address, circuit);
+        }
+    }
+
+    private void onFailure(Address address, Circuit trialCircuit, Exception cause) {
+        Circuit circuit = circuits.get(address);
+        if (circuit == null) {
+            evictIdle();
+            Circuit newCircuit = new Circuit();
+            circuit = circuits.putIfAbsent(address, newCircuit);
+            if (circuit == null) {
+                circuit = newCircuit;
+            }
+        }
+        // Only the trial of the current circuit may end its trial, and not the trial of a circuit that was since removed
+        circuit.onFailure(cause, circuit == trialCircuit);
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        long lastEviction = lastEvictionTime.get();
+        if (now - lastEviction < idleExpiryNanos || !lastEvictionTime.compareAndSet(lastEviction, now)) {
+            return;
+        }
+        for (Map.Entry<Address, Circuit> entry : circuits.entrySet()) {
+            if (entry.getValue().isIdle(now)) {
+                circuits.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+
+    /**
+     * The states of the circuit of a server
+     */
+    public enum State {
+
+        /**
+         * Requests to the server are executed
+         */
+        CLOSED,
+        /**
+         * Requests to the server fail immediately
+         */
+        OPEN,
+        /**
+         * The cool down has elapsed, and a single trial request to the server is executed
+         */
+        HALF_OPEN
+
+    }
+
+    /**
+     * Thrown to indicate that a request was not executed because the circuit of the server is open
+     */
+    public static class CircuitOpenException extends ConnectException {
+
+        private static final long serialVersionUID = 1L;
+
+        private CircuitOpenException(Address address, Throwable lastFailure) {
+            super("circuit of " + address + " is open");
+            initCause(lastFailure);
+        }
+
+    }
+
+    private class Circuit {
+
+        private int failures;
+        private long openedTime;
+        private boolean open;
+        private boolean trialInProgress;
+        private Throwable lastFailure;
+        private long lastRequestTime = System.nanoTime();
+
+        // Returns true if the request is the trial of this circuit
+        private synchronized boolean acquire(Address address) throws CircuitOpenException {
+            lastRequestTime = System.nanoTime();
+            if (!open) {
+                return false;
+            }
+            if (trialInProgress || System.nanoTime() - openedTime < coolDownNanos) {
+                throw new CircuitOpenException(address, lastFailure);
+            }
+            trialInProgress = true;
+            return true;
+        }
+
+        private synchronized void release() {
+            trialInProgress = false;
+        }
+
+        private synchronized void onFailure(Throwable cause, boolean trial) {
+            lastFailure = cause;
+            lastRequestTime = System.nanoTime();
+            if (trial) {
+                trialInProgress = false;
+            }
+            if (open || ++failures >= failureThreshold) {
+                open = true;
+                openedTime = System.nanoTime();
+            }
+        }
+
+        private synchronized boolean isIdle(long now) {
+            return !trialInProgress && now - lastRequestTime >= idleExpiryNanos;
+        }
+
+        private synchronized State getState() {
+            if (!open) {
+                return State.CLOSED;
+            }
+            return (System.nanoTime() - openedTime < coolDownNanos ? State.OPEN : State.HALF_OPEN);
+        }
+
+    }
+
+}
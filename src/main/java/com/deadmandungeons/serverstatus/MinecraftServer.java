@@ -18,6 +18,10 @@ public class MinecraftServer {
     private final Version version;
     private final String favicon;
 
+    // Lazily computed since the favicon makes hashing expensive
+    private int hash;
+    private volatile StatusFingerprint fingerprint;
+
     /**
      * @param address the resolved server address
      * @param description the server description
@@ -112,6 +116,20 @@ public class MinecraftServer {
     }
 
 
+    /**
+     * The fingerprint is computed on the first call and then reused, so it is cheap to compare
+     * the fingerprints of responses to find which groups of fields changed.
+     * @return the fingerprint of this server information
+     */
+    public StatusFingerprint getFingerprint() {
+        StatusFingerprint fingerprint = this.fingerprint;
+        if (fingerprint == null) {
+            this.fingerprint = fingerprint = StatusFingerprint.of(this);
+        }
+        return fingerprint;
+    }
+
+
     protected String getPrintableFavicon() {
         String favicon = getFavicon();
         if (favicon != null) {
@@ -131,7 +149,11 @@ public class MinecraftServer {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getAddress(), getPlayers(), getVersion(), getDescription(), getFavicon());
+        int hash = this.hash;
+        if (hash == 0) {
+            this.hash = hash = Objects.hash(getAddress(), getPlayers(), getVersion(), getDescription(), getFavicon());
+        }
+        return hash;
     }
 
     @Override
@@ -143,6 +165,9 @@ public class MinecraftServer {
             return false;
         }
         MinecraftServer other = (MinecraftServer) obj;
+        if (hashCode() != other.hashCode()) {
+            return false;
+        }
         return getAddress().equals(other.getAddress()) && getPlayers().equals(other.getPlayers()) && getVersion().equals(other.getVersion()) &&
                 getDescription().equals(other.getDescription()) && Objects.equals(getFavicon(), other.getFavicon());
     }
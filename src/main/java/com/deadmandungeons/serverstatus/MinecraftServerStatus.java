@@ -1,23 +1,137 @@
 package com.deadmandungeons.serverstatus;
 
 import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.LocalAddressPool;
 import com.deadmandungeons.serverstatus.ping.MinecraftPinger;
+import com.deadmandungeons.serverstatus.ping.PingProtocol;
 import com.deadmandungeons.serverstatus.ping.PingResponse;
 import com.deadmandungeons.serverstatus.ping.Pinger;
+import com.deadmandungeons.serverstatus.ping.ProtocolDetector;
 import com.deadmandungeons.serverstatus.query.MinecraftQuery;
 import com.deadmandungeons.serverstatus.query.QueryResponse;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URISyntaxException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 public class MinecraftServerStatus {
 
     private static final int DEFAULT_TIMEOUT = 6000;
 
+    private static final RequestCoalescer<InetSocketAddress, Integer> PING_REQUESTS = new RequestCoalescer<>();
+    private static final RequestCoalescer<InetSocketAddress, MinecraftServer> SERVER_REQUESTS = new RequestCoalescer<>();
+    private static final RequestCoalescer<InetSocketAddress, PingResponse> STATUS_REQUESTS = new RequestCoalescer<>();
+    private static final RequestCoalescer<InetSocketAddress, QueryResponse> QUERY_REQUESTS = new RequestCoalescer<>();
+
+    private static volatile boolean protocolDetection;
+    private static volatile boolean requestCoalescing;
+    private static volatile RetryPolicy retryPolicy;
+    private static volatile CircuitBreaker circuitBreaker;
+    private static volatile AdaptiveTimeouts adaptiveTimeouts;
+    private static volatile boolean abortiveClose;
+    private static volatile int sendBufferSize;
+    private static volatile int receiveBufferSize;
+    private static volatile LocalAddressPool localAddresses;
+
     private MinecraftServerStatus() {
     }
 
 
+    /**
+     * Enable or disable protocol detection for the ping methods of this class (disabled by default).<br>
+     * When enabled, servers on legacy protocol versions are supported by {@link MinecraftPinger#auto() detecting}
+     * and remembering the protocol each server answers. Otherwise only the current protocol is used.
+     * @param enabled <code>true</code> to detect the protocol of each pinged server
+     */
+    public static void setProtocolDetection(boolean enabled) {
+        protocolDetection = enabled;
+    }
+
+    /**
+     * Enable or disable request coalescing for the methods of this class (disabled by default).<br>
+     * When enabled, concurrent requests of the same kind to the same resolved server address share a single connection,
+     * so the server sees one request instead of one per caller. Every caller receives the same result (or failure).
+     * @param enabled <code>true</code> to coalesce concurrent requests to the same server
+     */
+    public static void setRequestCoalescing(boolean enabled) {
+        requestCoalescing = enabled;
+    }
+
+    /**
+     * Set the retry policy of the methods of this class (none by default).<br>
+     * When set, each request that fails with a retryable failure is retried according to the given policy,
+     * and coalesced requests share the retried result.
+     * @param policy the retry policy to apply to each request, or <code>null</code> to not retry failed requests
+     */
+    public static void setRetryPolicy(RetryPolicy policy) {
+        retryPolicy = policy;
+    }
+
+    /**
+     * Set the circuit breaker of the methods of this class (none by default).<br>
+     * When set, requests to a server that keeps failing fail immediately with a {@link CircuitBreaker.CircuitOpenException}
+     * until the cool down of its circuit has elapsed, rather than waiting for the timeout on every request.
+     * A request that is retried by the {@link #setRetryPolicy(RetryPolicy) retry policy} counts as a single request.
+     * @param breaker the circuit breaker to apply to each request, or <code>null</code> to always execute requests
+     */
+    public static void setCircuitBreaker(CircuitBreaker breaker) {
+        circuitBreaker = breaker;
+    }
+
+    /**
+     * Set the adaptive timeouts of the methods of this class (none by default).<br>
+     * When set, the timeout of each request is derived from the durations of the recent requests to the same server,
+     * rather than the fixed default timeout of 6 seconds.
+     * @param timeouts the adaptive timeouts to apply to each request, or <code>null</code> to use the default timeout
+     */
+    public static void setAdaptiveTimeouts(AdaptiveTimeouts timeouts) {
+        adaptiveTimeouts = timeouts;
+    }
+
+    /**
+     * Enable or disable abortive close of the connections of the ping methods of this class (disabled by default).<br>
+     * When enabled, each connection is reset when it is closed rather than closed gracefully, so that frequent pings
+     * do not leave local ports in TIME_WAIT.
+     * @param enabled <code>true</code> to reset each connection when it is closed
+     * @see MinecraftPinger#abortiveClose()
+     */
+    public static void setAbortiveClose(boolean enabled) {
+        abortiveClose = enabled;
+    }
+
+    /**
+     * Set the socket buffer sizes of the connections of the ping methods of this class (the system defaults by default).
+     * @param sendBufferSize the size in bytes of the socket send buffer, or 0 for the system default
+     * @param receiveBufferSize the size in bytes of the socket receive buffer, or 0 for the system default
+     */
+    public static void setSocketBufferSizes(int sendBufferSize, int receiveBufferSize) {
+        MinecraftServerStatus.sendBufferSize = sendBufferSize;
+        MinecraftServerStatus.receiveBufferSize = receiveBufferSize;
+    }
+
+    /**
+     * Set the local addresses that the connections of the ping methods of this class are bound to (none by default).
+     * @param pool the pool of local addresses to bind each connection to, or <code>null</code> to let the system choose
+     * @see LocalAddressPool
+     */
+    public static void setLocalAddresses(LocalAddressPool pool) {
+        localAddresses = pool;
+    }
+
+    /**
+     * Enable or disable interning of parsed responses (disabled by default).<br>
+     * When enabled, the versions, descriptions, server types, map names, and plugin lists of all responses parsed afterwards
+     * are shared with equal values of other responses through bounded {@link StatusInterner pools}, which reduces
+     * the retained memory of storing the statuses of many servers. Disabling it clears the pools.
+     * @param enabled <code>true</code> to intern the values of parsed responses
+     */
+    public static void setInterning(boolean enabled) {
+        StatusInterner.setEnabled(enabled);
+    }
+
+
     /**
      * Ping a Minecraft server.
      * @param host the hostname or IP address of the server
@@ -52,7 +166,7 @@ public class MinecraftServerStatus {
     }
 
     private static int doPing(InetServerAddress address) throws IOException {
-        return executePingFunction(address, new PingFunction<Integer>() {
+        return executePingFunction(address, PING_REQUESTS, new PingFunction<Integer>() {
             @Override
             public Integer apply(Pinger pinger) throws IOException {
                 return pinger.ping();
@@ -104,7 +218,7 @@ public class MinecraftServerStatus {
     }
 
     private static MinecraftServer doPingServer(InetServerAddress address) throws IOException {
-        return executePingFunction(address, new PingFunction<MinecraftServer>() {
+        return executePingFunction(address, SERVER_REQUESTS, new PingFunction<MinecraftServer>() {
             @Override
             public MinecraftServer apply(Pinger pinger) throws IOException {
                 return pinger.pingServer();
@@ -153,7 +267,7 @@ public class MinecraftServerStatus {
     }
 
     private static PingResponse doPingServerStatus(InetServerAddress address) throws IOException {
-        return executePingFunction(address, new PingFunction<PingResponse>() {
+        return executePingFunction(address, STATUS_REQUESTS, new PingFunction<PingResponse>() {
             @Override
             public PingResponse apply(Pinger pinger) throws IOException {
                 return pinger.pingServerStatus();
@@ -201,15 +315,107 @@ public class MinecraftServerStatus {
         return doQueryServerStatus(InetServerAddress.resolve(address));
     }
 
-    private static QueryResponse doQueryServerStatus(InetServerAddress address) throws IOException {
-        return MinecraftQuery.queryServerStatus(address, DEFAULT_TIMEOUT);
+    private static QueryResponse doQueryServerStatus(final InetServerAddress address) throws IOException {
+        final Callable<QueryResponse> query = timed(address, false, new TimedRequest<QueryResponse>() {
+            @Override
+            public QueryResponse execute(int timeout) throws IOException {
+                return MinecraftQuery.queryServerStatus(address, timeout);
+            }
+        });
+        if (!requestCoalescing) {
+            return executeRequest(address, query);
+        }
+        return QUERY_REQUESTS.execute(toSocketAddress(address), new Callable<QueryResponse>() {
+            @Override
+            public QueryResponse call() throws IOException {
+                return executeRequest(address, query);
+            }
+        });
     }
 
 
-    private static <T> T executePingFunction(InetServerAddress address, PingFunction<T> function) throws IOException {
-        Pinger pinger = new MinecraftPinger(address, DEFAULT_TIMEOUT);
+    private static <T> T executePingFunction(final InetServerAddress address, RequestCoalescer<InetSocketAddress, T> coalescer,
+            final PingFunction<T> function) throws IOException {
+        final boolean detectsProtocol = protocolDetection;
+        final Callable<T> request = timed(address, detectsProtocol, new TimedRequest<T>() {
+            @Override
+            public T execute(int timeout) throws IOException {
+                return function.apply(createPinger(address, timeout, detectsProtocol));
+            }
+        });
+        if (!requestCoalescing) {
+            return executeRequest(address, request);
+        }
+        return coalescer.execute(toSocketAddress(address), new Callable<T>() {
+            @Override
+            public T call() throws IOException {
+                return executeRequest(address, request);
+            }
+        });
+    }
 
-        return function.apply(pinger);
+    private static <T> T executeRequest(final InetServerAddress address, final Callable<T> request) throws IOException {
+        final RetryPolicy policy = retryPolicy;
+        CircuitBreaker breaker = circuitBreaker;
+        if (breaker != null) {
+            return breaker.execute(address, (policy == null ? request : new Callable<T>() {
+                @Override
+                public T call() throws IOException {
+                    return policy.execute(address, request);
+                }
+            }));
+        }
+        if (policy != null) {
+            return policy.execute(address, request);
+        }
+        try {
+            return request.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <T> Callable<T> timed(final InetServerAddress address, final boolean detectsProtocol, final TimedRequest<T> request) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws IOException {
+                AdaptiveTimeouts timeouts = adaptiveTimeouts;
+                if (timeouts == null) {
+                    return request.execute(DEFAULT_TIMEOUT);
+                }
+                ProtocolDetector detector = ProtocolDetector.getDefault();
+                PingProtocol knownProtocol = (detectsProtocol ? detector.getProtocol(address) : null);
+                long startTime = System.nanoTime();
+                T result;
+                try {
+                    result = request.execute(timeouts.getTimeout(address));
+                } catch (IOException e) {
+                    timeouts.onFailure(address, e);
+                    throw e;
+                }
+                // A request that had to probe the protocol also took the time of the failed probes, so it is not a sample
+                if (!detectsProtocol || (knownProtocol != null && knownProtocol == detector.getProtocol(address))) {
+                    timeouts.onSuccess(address, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                }
+                return result;
+            }
+        };
+    }
+
+    // A pinger is created for each request, but it reuses the handshake encoded by the recent pingers of the same server
+    private static Pinger createPinger(InetServerAddress address, int timeout, boolean detectsProtocol) {
+        MinecraftPinger minecraftPinger = new MinecraftPinger(address, timeout).sendBufferSize(sendBufferSize)
+                .receiveBufferSize(receiveBufferSize).localAddresses(localAddresses);
+        if (abortiveClose) {
+            minecraftPinger.abortiveClose();
+        }
+        return (detectsProtocol ? minecraftPinger.auto() : minecraftPinger);
+    }
+
+    private static InetSocketAddress toSocketAddress(InetServerAddress address) {
+        return new InetSocketAddress(address.getInetAddress(), address.getPort());
     }
 
     private interface PingFunction<T> {
@@ -217,4 +423,9 @@ public class MinecraftServerStatus {
         T apply(Pinger pinger) throws IOException;
     }
 
+    private interface TimedRequest<T> {
+
+        T execute(int timeout) throws IOException;
+    }
+
 }
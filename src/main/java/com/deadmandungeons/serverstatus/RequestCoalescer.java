@@ -0,0 +1,73 @@
+package com.deadmandungeons.serverstatus;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent requests that have the same key, so that only the first request is executed
+ * and every caller that arrives while it is in flight shares its result (or its failure).
+ * <p>
+ * <b>Note:</b> A failure is the same exception instance for every caller, so callers must not modify it,
+ * such as by {@link Throwable#addSuppressed(Throwable) adding suppressed exceptions} to it.
+ * Wrap it in a new exception instead if other failures should be attached to it.
+ * @param <K> the request key type
+ * @param <V> the request result type
+ */
+public class RequestCoalescer<K, V> {
+
+    private final ConcurrentMap<K, FutureTask<V>> requests = new ConcurrentHashMap<>();
+
+    /**
+     * Execute the given request in the calling thread, unless a request with the same key is already in flight,
+     * in which case wait for that request to complete and return its result instead.
+     * @param key the key identifying equivalent requests
+     * @param request the request to execute
+     * @return the result of the request, or of the equivalent request that was already in flight
+     * @throws IOException if the executed request failed with an IOException, which is shared with the other callers,
+     * or the calling thread was interrupted while waiting
+     */
+    public V execute(K key, Callable<V> request) throws IOException {
+        FutureTask<V> task = new FutureTask<>(request);
+        FutureTask<V> inFlightTask = requests.putIfAbsent(key, task);
+        if (inFlightTask == null) {
+            try {
+                task.run();
+            } finally {
+                requests.remove(key, task);
+            }
+            inFlightTask = task;
+        }
+
+        try {
+            return inFlightTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException("interrupted while waiting for request").initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * @return the number of requests that are currently in flight
+     */
+    public int getInFlightCount() {
+        return requests.size();
+    }
+
+}
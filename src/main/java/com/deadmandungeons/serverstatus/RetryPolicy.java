@@ -0,0 +1,291 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.MinecraftPinger.InvalidServerResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries failed requests with exponential backoff and jitter, and optionally hedges slow requests with a second attempt.
+ * <p>
+ * A failure is retried if it may be transient, such as a refused or reset connection or a timeout.
+ * An {@link InvalidServerResponse}, an unknown host, an open circuit, or an interruption is fatal and is thrown immediately.
+ * The delay before each retry doubles from the initial backoff up to the maximum backoff, and the jitter randomly shortens
+ * each delay so that many clients retrying the same server do not retry in lockstep.
+ * <p>
+ * With {@link #hedged(Executor) hedging} enabled, each attempt runs on the given executor, and if it has not completed
+ * within the 95th percentile of the recent successful attempt durations of the same server, a second attempt is started
+ * alongside it. The first successful attempt is returned, so only the slowest 5% of requests to each server cost
+ * a second request, even for servers that are always slower than the others.
+ * <p>
+ * <b>Note:</b> The policy should be configured before it is shared between threads.
+ */
+public class RetryPolicy {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_INITIAL_BACKOFF = 200;
+    private static final long DEFAULT_MAX_BACKOFF = 5000;
+    private static final double DEFAULT_JITTER = 0.5;
+    private static final long DEFAULT_HEDGE_DELAY = 1000;
+    // The amount of recent attempt durations that the hedge delay is derived from
+    private static final int DURATION_SAMPLES = 128;
+    private static final int MIN_DURATION_SAMPLES = 16;
+    // Servers beyond this amount use the default hedge delay, so the samples of servers that are never removed are bounded
+    private static final int MAX_SAMPLED_SERVERS = 10000;
+
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+    private long maxBackoff = DEFAULT_MAX_BACKOFF;
+    private double jitter = DEFAULT_JITTER;
+    private Executor hedgeExecutor;
+
+    private final ConcurrentMap<Address, Durations> durations = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param maxAttempts the maximum amount of attempts of each request including the first attempt (3 by default)
+     * @return this RetryPolicy instance
+     * @throws IllegalArgumentException if maxAttempts is less than 1
+     */
+    public RetryPolicy maxAttempts(int maxAttempts) throws IllegalArgumentException {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * @param initialBackoff the delay in milliseconds before the first retry (200 by default)
+     * @param maxBackoff the maximum delay in milliseconds before any retry (5000 by default)
+     * @return this RetryPolicy instance
+     * @throws IllegalArgumentException if initialBackoff is negative or maxBackoff is less than initialBackoff
+     */
+    public RetryPolicy backoff(long initialBackoff, long maxBackoff) throws IllegalArgumentException {
+        if (initialBackoff < 0 || maxBackoff < initialBackoff) {
+            throw new IllegalArgumentException("backoff must be positive and maxBackoff must be at least initialBackoff");
+        }
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * @param jitter the fraction of each backoff delay that is randomly removed, from 0 for no jitter to 1 (0.5 by default)
+     * @return this RetryPolicy instance
+     * @throws IllegalArgumentException if jitter is not between 0 and 1
+     */
+    public RetryPolicy jitter(double jitter) throws IllegalArgumentException {
+        if (!(jitter >= 0 && jitter <= 1)) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1");
+        }
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Hedge each attempt by starting a second attempt once the first is slower than the recent 95th percentile of its server
+     * @param executor the executor that hedged attempts run on, which must be able to run two attempts of each request at a time
+     * @return this RetryPolicy instance
+     */
+    public RetryPolicy hedged(Executor executor) {
+        this.hedgeExecutor = executor;
+        return this;
+    }
+
+
+    /**
+     * Execute the given request to the given server, and retry it while it fails with a retryable failure
+     * until the maximum attempts are reached
+     * @param address the address of the server, whose recent attempt durations determine the hedge delay
+     * @param request the request to execute
+     * @return the result of the first successful attempt
+     * @throws IOException the failure of the last attempt, or the first fatal failure
+     */
+    public <V> V execute(Address address, Callable<V> request) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return (hedgeExecutor != null ? executeHedged(address, request) : call(request));
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(getBackoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw (InterruptedIOException) new InterruptedIOException("interrupted while waiting to retry").initCause(e);
+            }
+        }
+    }
+
+    /**
+     * @param failure the failure of an attempt
+     * @return <code>true</code> if the failure may be transient so the request should be retried
+     */
+    public boolean isRetryable(IOException failure) {
+        if (failure instanceof InvalidServerResponse || failure instanceof UnknownHostException
+                || failure instanceof CircuitBreaker.CircuitOpenException) {
+            return false;
+        }
+        // SocketTimeoutException is the only InterruptedIOException that is not caused by an interruption
+        return failure instanceof SocketTimeoutException || !(failure instanceof InterruptedIOException);
+    }
+
+    /**
+     * @param attempt the amount of attempts that have failed
+     * @return the delay in milliseconds before the next attempt
+     */
+    protected long getBackoff(int attempt) {
+        long backoff = initialBackoff << Math.min(attempt - 1, 30);
+        if (backoff > maxBackoff || backoff < 0) {
+            backoff = maxBackoff;
+        }
+        return backoff - (long) (backoff * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @param address the address of the server
+     * @return the delay in milliseconds after which a hedged attempt to the given server is started
+     */
+    public long getHedgeDelay(Address address) {
+        Durations serverDurations = durations.get(address);
+        return (serverDurations != null ? serverDurations.getPercentile95() : DEFAULT_HEDGE_DELAY);
+    }
+
+    /**
+     * Forget the attempt durations of the given server
+     * @param address the address of the server
+     */
+    public void remove(Address address) {
+        durations.remove(address);
+    }
+
+
+    private <V> V executeHedged(final Address address, final Callable<V> request) throws IOException {
+        CompletionService<V> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        Callable<V> timedRequest = new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                long startTime = System.nanoTime();
+                V result = RetryPolicy.call(request);
+                recordDuration(address, System.nanoTime() - startTime);
+                return result;
+            }
+        };
+        Future<V> first = completion.submit(timedRequest);
+        Future<V> second = null;
+        try {
+            Future<V> completed = completion.poll(getHedgeDelay(address), TimeUnit.MILLISECONDS);
+            if (completed == null) {
+                second = completion.submit(timedRequest);
+                completed = completion.take();
+            }
+            try {
+                return getResult(completed);
+            } catch (IOException e) {
+                // A fatal failure would fail the other attempt the same way
+                if (second == null || !isRetryable(e)) {
+                    throw e;
+                }
+                return getResult(completion.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException("interrupted while waiting for request").initCause(e);
+        } finally {
+            first.cancel(true);
+            if (second != null) {
+                second.cancel(true);
+            }
+        }
+    }
+
+    private void recordDuration(Address address, long duration) {
+        Durations serverDurations = durations.get(address);
+        if (serverDurations == null) {
+            if (durations.size() >= MAX_SAMPLED_SERVERS) {
+                return;
+            }
+            Durations newDurations = new Durations();
+            serverDurations = durations.putIfAbsent(address, newDurations);
+            if (serverDurations == null) {
+                serverDurations = newDurations;
+            }
+        }
+        serverDurations.record(duration);
+    }
+
+    private static <V> V call(Callable<V> request) throws IOException {
+        try {
+            return request.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <V> V getResult(Future<V> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+
+    private static class Durations {
+
+        private final long[] samples = new long[DURATION_SAMPLES];
+        private int count;
+        private int index;
+
+        private synchronized void record(long duration) {
+            samples[index] = duration;
+            index = (index + 1) % samples.length;
+            if (count < samples.length) {
+                count++;
+            }
+        }
+
+        private long getPercentile95() {
+            long[] sorted;
+            synchronized (this) {
+                if (count < MIN_DURATION_SAMPLES) {
+                    return DEFAULT_HEDGE_DELAY;
+                }
+                sorted = Arrays.copyOf(samples, count);
+            }
+            Arrays.sort(sorted);
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(sorted[(sorted.length * 95 - 1) / 100]));
+        }
+
+    }
+
+}
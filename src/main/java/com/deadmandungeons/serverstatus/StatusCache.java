@@ -0,0 +1,330 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.query.QueryResponse;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of server status responses keyed by {@link Address}.<br>
+ * Each response expires a fixed duration after it was loaded, and once the cache is full, the least recently used of a sample
+ * of the cached responses is evicted for each new response. Reads do not lock, so they stay fast during read spikes.
+ * Concurrent loads of the same address are coalesced into a single request.
+ * <p>
+ * With {@link #staleWhileRevalidate(long, TimeUnit, Executor) stale-while-revalidate} enabled, an expired response
+ * is still returned immediately while a single background refresh of it runs, so the request volume to the servers
+ * is independent of the read volume of the cache.
+ * <p>
+ * <b>Note:</b> The cache should be configured before it is shared between threads.
+ * @param <T> the type of status response
+ */
+public class StatusCache<T extends MinecraftServer> {
+
+    private static final long DEFAULT_EXPIRE_SECONDS = 30;
+    private static final int DEFAULT_MAXIMUM_SIZE = 10000;
+    private static final long DEFAULT_REFRESH_BACKOFF_SECONDS = 5;
+    // The amount of cached responses compared to find the least recently used response to evict
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final Loader<T> loader;
+    private final RequestCoalescer<Address, T> loads = new RequestCoalescer<>();
+    private final ConcurrentMap<Address, CachedResponse<T>> entries = new ConcurrentHashMap<>();
+    // Incremented by each invalidation, so that loads which started before it do not cache their response
+    private final AtomicLong generation = new AtomicLong();
+    private final Object evictionLock = new Object();
+    // Guarded by evictionLock, and continues where the previous eviction stopped sampling
+    private Iterator<Map.Entry<Address, CachedResponse<T>>> evictionCursor;
+
+    private long expireNanos = TimeUnit.SECONDS.toNanos(DEFAULT_EXPIRE_SECONDS);
+    private long staleNanos;
+    private long refreshBackoffNanos = TimeUnit.SECONDS.toNanos(DEFAULT_REFRESH_BACKOFF_SECONDS);
+    private Executor refreshExecutor;
+    private volatile int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    /**
+     * @param loader the loader used to request the status of servers that are not cached
+     */
+    public StatusCache(Loader<T> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @return a new cache of responses from {@link MinecraftServerStatus#pingServerStatus(Address)}
+     */
+    public static StatusCache<PingResponse> ping() {
+        return new StatusCache<>(new Loader<PingResponse>() {
+            @Override
+            public PingResponse load(Address address) throws IOException {
+                return MinecraftServerStatus.pingServerStatus(address);
+            }
+        });
+    }
+
+    /**
+     * @return a new cache of responses from {@link MinecraftServerStatus#queryServerStatus(Address)}
+     */
+    public static StatusCache<QueryResponse> query() {
+        return new StatusCache<>(new Loader<QueryResponse>() {
+            @Override
+            public QueryResponse load(Address address) throws IOException {
+                return MinecraftServerStatus.queryServerStatus(address);
+            }
+        });
+    }
+
+
+    /**
+     * @param duration the duration after loading that a response expires (30 seconds by default)
+     * @param unit the unit of the duration
+     * @return this StatusCache instance
+     */
+    public StatusCache<T> expireAfter(long duration, TimeUnit unit) {
+        expireNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * @param maximumSize the maximum amount of responses to cache before evicting the approximately least recently used (10000 by default)
+     * @return this StatusCache instance
+     * @throws IllegalArgumentException if maximumSize is less than 1
+     */
+    public StatusCache<T> maximumSize(int maximumSize) throws IllegalArgumentException {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Serve expired responses for up to the given duration after they expire, while refreshing them in the background.
+     * At most one refresh runs for each address at a time, and a response is kept until its refresh succeeds or it becomes too stale.
+     * After a refresh fails, the response is not refreshed again until the {@link #refreshBackoff(long, TimeUnit) refresh backoff}
+     * has elapsed, so an unreachable server is not requested on every read.
+     * @param duration the duration after expiring that a response may still be served
+     * @param unit the unit of the duration
+     * @param executor the executor to run background refreshes on
+     * @return this StatusCache instance
+     */
+    public StatusCache<T> staleWhileRevalidate(long duration, TimeUnit unit, Executor executor) {
+        staleNanos = unit.toNanos(duration);
+        refreshExecutor = executor;
+        return this;
+    }
+
+    /**
+     * @param duration the duration after a failed background refresh before the same response is refreshed again (5 seconds by default)
+     * @param unit the unit of the duration
+     * @return this StatusCache instance
+     */
+    public StatusCache<T> refreshBackoff(long duration, TimeUnit unit) {
+        refreshBackoffNanos = unit.toNanos(duration);
+        return this;
+    }
+
+
+    /**
+     * Get the cached response for the given server, loading it first if it is not cached or has expired.
+     * @param address the address of the server
+     * @return the cached or loaded response
+     * @throws IOException if the response had to be loaded and loading it failed
+     */
+    public T get(Address address) throws IOException {
+        CachedResponse<T> entry = getEntry(address);
+        long now = System.nanoTime();
+        if (entry != null) {
+            long age = now - entry.loadTime;
+            if (age < expireNanos) {
+                return entry.value;
+            }
+            if (refreshExecutor != null && age < expireNanos + staleNanos) {
+                refresh(address, entry, now);
+                return entry.value;
+            }
+        }
+        return load(address, generation.get());
+    }
+
+    /**
+     * @param address the address of the server
+     * @return the cached response for the given server if it has not expired, or <code>null</code> otherwise
+     */
+    public T getIfPresent(Address address) {
+        CachedResponse<T> entry = getEntry(address);
+        if (entry != null && System.nanoTime() - entry.loadTime < expireNanos) {
+            return entry.value;
+        }
+        return null;
+    }
+
+    /**
+     * Cache the given response as if it was just loaded
+     * @param address the address of the server
+     * @param value the response to cache
+     */
+    public void put(Address address, T value) {
+        entries.put(address, new CachedResponse<>(value, System.nanoTime()));
+        evictIfFull();
+    }
+
+    /**
+     * Remove the cached response of the given server.
+     * A load or refresh that is in flight will not cache its response, but still returns it to the callers waiting for it.
+     * @param address the address of the server whose cached response should be removed
+     */
+    public void invalidate(Address address) {
+        generation.incrementAndGet();
+        entries.remove(address);
+    }
+
+    /**
+     * Remove all cached responses.
+     * Loads and refreshes that are in flight will not cache their response, but still return it to the callers waiting for it.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * @return the amount of cached responses, including expired responses that were not evicted yet
+     */
+    public int size() {
+        return entries.size();
+    }
+
+
+    private CachedResponse<T> getEntry(Address address) {
+        CachedResponse<T> entry = entries.get(address);
+        if (entry != null) {
+            entry.accessTime = System.nanoTime();
+        }
+        return entry;
+    }
+
+    // The generation is read when the load is requested, which is before a background refresh is run
+    private T load(final Address address, final long loadGeneration) throws IOException {
+        return loads.execute(address, new Callable<T>() {
+            @Override
+            public T call() throws IOException {
+                T value = loader.load(address);
+                cache(address, value, loadGeneration);
+                return value;
+            }
+        });
+    }
+
+    // The response of a load that started before an invalidation must not undo it
+    private void cache(Address address, T value, long loadGeneration) {
+        if (generation.get() != loadGeneration) {
+            return;
+        }
+        CachedResponse<T> entry = new CachedResponse<>(value, System.nanoTime());
+        entries.put(address, entry);
+        // An invalidation increments the generation before removing, so one that missed this entry is seen here
+        if (generation.get() != loadGeneration) {
+            entries.remove(address, entry);
+        } else {
+            evictIfFull();
+        }
+    }
+
+    private void evictIfFull() {
+        // Evictions only lock out each other, and not the reads
+        while (entries.size() > maximumSize) {
+            synchronized (evictionLock) {
+                if (entries.size() <= maximumSize) {
+                    return;
+                }
+                Map.Entry<Address, CachedResponse<T>> oldest = null;
+                for (int i = 0; i < EVICTION_SAMPLES; i++) {
+                    if (evictionCursor == null || !evictionCursor.hasNext()) {
+                        evictionCursor = entries.entrySet().iterator();
+                        if (!evictionCursor.hasNext()) {
+                            break;
+                        }
+                    }
+                    Map.Entry<Address, CachedResponse<T>> sample = evictionCursor.next();
+                    if (oldest == null || sample.getValue().accessTime - oldest.getValue().accessTime < 0) {
+                        oldest = sample;
+                    }
+                }
+                if (oldest != null) {
+                    entries.remove(oldest.getKey(), oldest.getValue());
+                }
+            }
+        }
+    }
+
+    private void refresh(final Address address, final CachedResponse<T> entry, long now) {
+        if (entry.refreshFailed && now - entry.refreshFailedTime < refreshBackoffNanos) {
+            return;
+        }
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        final long refreshGeneration = generation.get();
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        load(address, refreshGeneration);
+                    } catch (IOException | RuntimeException e) {
+                        // Keep serving the stale response until it is too stale, then the next get will load synchronously
+                        entry.refreshFailedTime = System.nanoTime();
+                        entry.refreshFailed = true;
+                        entry.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+
+    /**
+     * Loads the status response of a server for a {@link StatusCache}
+     * @param <T> the type of status response
+     */
+    public interface Loader<T> {
+
+        /**
+         * @param address the address of the server
+         * @return the status response of the server
+         * @throws IOException if an error occurs requesting the status of the server
+         */
+        T load(Address address) throws IOException;
+    }
+
+    private static class CachedResponse<T> {
+
+        private final T value;
+        private final long loadTime;
+        private volatile long accessTime;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        // The time is written before the flag, so it is visible once the flag is
+        private volatile long refreshFailedTime;
+        private volatile boolean refreshFailed;
+
+        private CachedResponse(T value, long loadTime) {
+            this.value = value;
+            this.loadTime = loadTime;
+            this.accessTime = loadTime;
+        }
+
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.query.QueryResponse;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A compact fingerprint of a {@link MinecraftServer} with a separate 64-bit hash for each group of fields,
+ * so that two responses can be compared for changes per field group without comparing the fields themselves.<br>
+ * Each server only computes its fingerprint once, see {@link MinecraftServer#getFingerprint()}.
+ * <p>
+ * <b>Note:</b> Equal hashes almost certainly, but not strictly, mean equal fields.
+ */
+public class StatusFingerprint {
+
+    private final int playerCount;
+    private final int playerMax;
+    private final long playersHash;
+    private final long versionHash;
+    private final long descriptionHash;
+    private final long faviconHash;
+
+    private StatusFingerprint(MinecraftServer server) {
+        MinecraftServer.Players players = server.getPlayers();
+        List<?> playerList = Collections.emptyList();
+        if (players instanceof PingResponse.PlayersStatus) {
+            PingResponse.PlayersStatus playersStatus = (PingResponse.PlayersStatus) players;
+            playerCount = playersStatus.getCount();
+            playerList = playersStatus.getSample();
+        } else if (players instanceof QueryResponse.PlayersList) {
+            QueryResponse.PlayersList playersList = (QueryResponse.PlayersList) players;
+            playerCount = playersList.getCount();
+            playerList = playersList.getList();
+        } else {
+            playerCount = -1;
+        }
+        playerMax = players.getMax();
+
+        long hash = ByteUtils.FNV_OFFSET_BASIS;
+        for (Object player : playerList) {
+            if (player instanceof PingResponse.Player) {
+                PingResponse.Player samplePlayer = (PingResponse.Player) player;
+                hash = hash(hash, samplePlayer.getId().getMostSignificantBits());
+                hash = hash(hash, samplePlayer.getId().getLeastSignificantBits());
+                hash = hash(hash, samplePlayer.getName());
+            } else {
+                hash = hash(hash, String.valueOf(player));
+            }
+        }
+        playersHash = hash;
+
+        MinecraftServer.Version version = server.getVersion();
+        versionHash = (version != null ? hash(hash(ByteUtils.FNV_OFFSET_BASIS, version.getName()), version.getProtocol()) : 0);
+        descriptionHash = hash(ByteUtils.FNV_OFFSET_BASIS, server.getDescription().getText());
+        faviconHash = (server.getFavicon() != null ? hash(ByteUtils.FNV_OFFSET_BASIS, server.getFavicon()) : 0);
+    }
+
+    /**
+     * <b>Note:</b> Prefer {@link MinecraftServer#getFingerprint()} which only computes the fingerprint once.
+     * @param server the server to fingerprint
+     * @return a new fingerprint of the given server
+     */
+    public static StatusFingerprint of(MinecraftServer server) {
+        return new StatusFingerprint(server);
+    }
+
+
+    /**
+     * @return the player count, or -1 if the server players information does not include the count
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * @return the maximum amount of players
+     */
+    public int getPlayerMax() {
+        return playerMax;
+    }
+
+    /**
+     * @return the hash of the sample or list of online players
+     */
+    public long getPlayersHash() {
+        return playersHash;
+    }
+
+    /**
+     * @return the hash of the version name and protocol, or 0 if the version is unknown
+     */
+    public long getVersionHash() {
+        return versionHash;
+    }
+
+    /**
+     * @return the hash of the description text
+     */
+    public long getDescriptionHash() {
+        return descriptionHash;
+    }
+
+    /**
+     * @return the hash of the favicon, or 0 if the server has no favicon
+     */
+    public long getFaviconHash() {
+        return faviconHash;
+    }
+
+
+    @Override
+    public String toString() {
+        return "StatusFingerprint{players: " + getPlayerCount() + "/" + getPlayerMax() + "#" + Long.toHexString(getPlayersHash()) +
+                ", version: " + Long.toHexString(getVersionHash()) + ", description: " + Long.toHexString(getDescriptionHash()) +
+                ", favicon: " + Long.toHexString(getFaviconHash()) + "}";
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = hash(hash(hash(hash(playersHash, playerCount), playerMax), versionHash ^ descriptionHash), faviconHash);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof StatusFingerprint)) {
+            return false;
+        }
+        StatusFingerprint other = (StatusFingerprint) obj;
+        return getPlayerCount() == other.getPlayerCount() && getPlayerMax() == other.getPlayerMax() &&
+                getPlayersHash() == other.getPlayersHash() && getVersionHash() == other.getVersionHash() &&
+                getDescriptionHash() == other.getDescriptionHash() && getFaviconHash() == other.getFaviconHash();
+    }
+
+
+    // FNV-1a over the UTF-16 chars of the string
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return ByteUtils.fnv1a(hash, 0);
+        }
+        for (int i = 0, n = value.length(); i < n; i++) {
+            hash = ByteUtils.fnv1a(hash, value.charAt(i));
+        }
+        // Separate consecutive strings so that "ab","c" and "a","bc" hash differently
+        return ByteUtils.fnv1a(hash, 0xFFFF);
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 64; i += 16) {
+            hash = ByteUtils.fnv1a(hash, (int) ((value >>> i) & 0xFFFF));
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded pools of the values that are commonly identical across many servers, such as version names, descriptions,
+ * server types, and plugin lists, so that responses parsed while interning is enabled share a single instance of each value.
+ * This reduces the retained memory of storing the statuses of many servers.
+ * <p>
+ * Interning is disabled by default, in which case every method returns the given value.
+ * It is enabled with {@link MinecraftServerStatus#setInterning(boolean)}, and applies to all responses parsed afterwards.
+ * Each pool holds at most {@value #POOL_CAPACITY} values, and evicts its least recently used value once full.
+ */
+public class StatusInterner {
+
+    private static final int POOL_CAPACITY = 4096;
+
+    private static final Pool<String, String> STRINGS = new Pool<>();
+    private static final Pool<Version, Version> VERSIONS = new Pool<>();
+    private static final Pool<String, Description> DESCRIPTIONS = new Pool<>();
+    private static final Pool<List<String>, List<String>> LISTS = new Pool<>();
+
+    private static volatile boolean enabled;
+
+    private StatusInterner() {
+    }
+
+
+    static void setEnabled(boolean enabled) {
+        StatusInterner.enabled = enabled;
+        if (!enabled) {
+            STRINGS.clear();
+            VERSIONS.clear();
+            DESCRIPTIONS.clear();
+            LISTS.clear();
+        }
+    }
+
+    /**
+     * @param value the string to intern, such as a server type or map name
+     * @return the pooled string equal to the given string, or the given string if interning is disabled
+     */
+    public static String intern(String value) {
+        return (enabled && value != null ? STRINGS.intern(value, value) : value);
+    }
+
+    /**
+     * @param version the version to intern
+     * @return the pooled version equal to the given version, or the given version if interning is disabled
+     */
+    public static Version intern(Version version) {
+        if (!enabled || version == null) {
+            return version;
+        }
+        Version pooled = VERSIONS.get(version);
+        if (pooled == null) {
+            pooled = VERSIONS.intern(version, new Version(intern(version.getName()), version.getProtocol()));
+        }
+        return pooled;
+    }
+
+    /**
+     * @param description the description to intern
+     * @return the pooled description with the same text as the given description, or the given description if interning is disabled
+     */
+    public static Description intern(Description description) {
+        return (enabled ? DESCRIPTIONS.intern(description.getText(), description) : description);
+    }
+
+    /**
+     * Get the pooled description with the given legacy text, which avoids parsing the text when it is already pooled
+     * @param text the legacy text of the description
+     * @return the pooled description with the given text, or a new description if interning is disabled
+     */
+    public static Description internDescription(String text) {
+        if (!enabled) {
+            return new Description(text);
+        }
+        Description pooled = DESCRIPTIONS.get(text);
+        if (pooled == null) {
+            pooled = DESCRIPTIONS.intern(text, new Description(text));
+        }
+        return pooled;
+    }
+
+    /**
+     * @param list the list of strings to intern, such as a plugin list, which must not be modified afterwards
+     * @return the pooled unmodifiable list equal to the given list, or an unmodifiable view of the given list if interning
+     * is disabled, so that the returned list is unmodifiable either way
+     */
+    public static List<String> intern(List<String> list) {
+        if (list == null) {
+            return null;
+        }
+        if (!enabled) {
+            return Collections.unmodifiableList(list);
+        }
+        List<String> pooled = LISTS.get(list);
+        if (pooled == null) {
+            List<String> internedList = new ArrayList<>(list.size());
+            for (String value : list) {
+                internedList.add(intern(value));
+            }
+            pooled = LISTS.intern(internedList, Collections.unmodifiableList(internedList));
+        }
+        return pooled;
+    }
+
+
+    /**
+     * A synchronized map that evicts its least recently used entry once it exceeds the pool capacity
+     */
+    private static class Pool<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private Pool() {
+            super(16, 0.75f, true);
+        }
+
+        private synchronized V intern(K key, V value) {
+            V pooled = super.get(key);
+            if (pooled == null) {
+                put(key, value);
+                pooled = value;
+            }
+            return pooled;
+        }
+
+        @Override
+        public synchronized V get(Object key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized void clear() {
+            super.clear();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > POOL_CAPACITY;
+        }
+
+    }
+
+}
@@ -0,0 +1,411 @@
+package com.deadmandungeons.serverstatus.codec;
+
+import com.deadmandungeons.serverstatus.ByteUtils;
+import com.deadmandungeons.serverstatus.MinecraftServer;
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Players;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.query.QueryResponse;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A compact, versioned binary format for {@link MinecraftServer}, {@link PingResponse} and {@link QueryResponse}.
+ * <p>
+ * Numbers are encoded as VarInts, and each string is only written once per encoded server while any repetition of it
+ * is written as a reference into the dictionary of strings written before it. A base64 encoded favicon is written as
+ * its raw png bytes, which is a quarter smaller than its base64 text. The description is written in its legacy text format.
+ * <p>
+ * Decoding reads directly from a {@link ByteBuffer} starting at its position, so encoded servers can be read from
+ * a larger buffer such as a memory-mapped file without copying them first.
+ */
+public class StatusCodec {
+
+    /**
+     * The version of the binary format which is the first byte of every encoded server
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int SERVER_TYPE = 0;
+    private static final int PING_RESPONSE_TYPE = 1;
+    private static final int QUERY_RESPONSE_TYPE = 2;
+
+    private static final int PLAYERS = 0;
+    private static final int PLAYERS_STATUS = 1;
+    private static final int PLAYERS_LIST = 2;
+
+    private static final int VERSION_FLAG = 1;
+    private static final int RAW_FAVICON_FLAG = 2;
+    private static final int TEXT_FAVICON_FLAG = 4;
+
+    private static final String BASE64_MARKER = ";base64,";
+
+    private StatusCodec() {
+    }
+
+
+    /**
+     * @param server the server to encode
+     * @return a new byte array containing the encoded server
+     */
+    public static byte[] encode(MinecraftServer server) {
+        Encoder encoder = new Encoder();
+        encoder.writeServer(server);
+        return Arrays.copyOf(encoder.bytes, encoder.position);
+    }
+
+    /**
+     * @param bytes the encoded server
+     * @return the decoded server, which is a {@link PingResponse} or a {@link QueryResponse} if the encoded server was one
+     * @throws IOException if the bytes are not a valid encoded server
+     */
+    public static MinecraftServer decode(byte[] bytes) throws IOException {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decode a server starting at the position of the given buffer, and advance the position past the encoded server
+     * @param buffer the buffer containing the encoded server
+     * @return the decoded server, which is a {@link PingResponse} or a {@link QueryResponse} if the encoded server was one
+     * @throws IOException if the buffer does not contain a valid encoded server at its position
+     */
+    public static MinecraftServer decode(ByteBuffer buffer) throws IOException {
+        try {
+            return new Decoder(buffer).readServer();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Invalid encoded server: unexpected end of data", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid encoded server: " + e.getMessage(), e);
+        }
+    }
+
+
+    private static class Encoder {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private byte[] bytes = new byte[256];
+        private int position;
+
+        private void writeServer(MinecraftServer server) {
+            int type = SERVER_TYPE;
+            if (server instanceof PingResponse) {
+                type = PING_RESPONSE_TYPE;
+            } else if (server instanceof QueryResponse) {
+                type = QUERY_RESPONSE_TYPE;
+            }
+            writeByte(FORMAT_VERSION);
+            writeByte(type);
+            writeString(server.getAddress().getHost());
+            writeVarInt(server.getAddress().getPort());
+            writeString(server.getDescription().getText());
+
+            Version version = server.getVersion();
+            String favicon = server.getFavicon();
+            byte[] faviconData = null;
+            int faviconDataIndex = -1;
+            if (favicon != null) {
+                int markerIndex = favicon.indexOf(BASE64_MARKER);
+                if (markerIndex >= 0) {
+                    faviconDataIndex = markerIndex + BASE64_MARKER.length();
+                    faviconData = ByteUtils.decodeBase64(favicon, faviconDataIndex);
+                }
+            }
+            int flags = 0;
+            if (version != null) {
+                flags |= VERSION_FLAG;
+            }
+            if (faviconData != null) {
+                flags |= RAW_FAVICON_FLAG;
+            } else if (favicon != null) {
+                flags |= TEXT_FAVICON_FLAG;
+            }
+            writeByte(flags);
+
+            if (version != null) {
+                writeString(version.getName());
+                writeSignedVarInt(version.getProtocol());
+            }
+            writePlayers(server.getPlayers());
+            if (faviconData != null) {
+                writeString(favicon.substring(0, faviconDataIndex));
+                writeVarInt(faviconData.length);
+                writeBytes(faviconData);
+            } else if (favicon != null) {
+                writeString(favicon);
+            }
+
+            if (type == PING_RESPONSE_TYPE) {
+                writeSignedVarInt(((PingResponse) server).getLatency());
+            } else if (type == QUERY_RESPONSE_TYPE) {
+                QueryResponse queryResponse = (QueryResponse) server;
+                writeString(queryResponse.getMapName());
+                writeString(queryResponse.getServerType());
+                writeStrings(queryResponse.getPlugins());
+            }
+        }
+
+        private void writePlayers(Players players) {
+            if (players instanceof PingResponse.PlayersStatus) {
+                PingResponse.PlayersStatus playersStatus = (PingResponse.PlayersStatus) players;
+                writeByte(PLAYERS_STATUS);
+                writeSignedVarInt(playersStatus.getMax());
+                writeSignedVarInt(playersStatus.getCount());
+                List<PingResponse.Player> sample = playersStatus.getSample();
+                writeVarInt(sample.size());
+                for (PingResponse.Player player : sample) {
+                    writeLong(player.getId().getMostSignificantBits());
+                    writeLong(player.getId().getLeastSignificantBits());
+                    writeString(player.getName());
+                }
+            } else if (players instanceof QueryResponse.PlayersList) {
+                QueryResponse.PlayersList playersList = (QueryResponse.PlayersList) players;
+                writeByte(PLAYERS_LIST);
+                writeSignedVarInt(playersList.getMax());
+                writeSignedVarInt(playersList.getCount());
+                writeStrings(playersList.getList());
+            } else {
+                writeByte(PLAYERS);
+                writeSignedVarInt(players.getMax());
+            }
+        }
+
+        private void writeStrings(List<String> values) {
+            if (values == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(values.size() + 1);
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        // 0 is null, an odd header is a dictionary index, and an even header is the length of a new string
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarInt((index << 1) | 1);
+                return;
+            }
+            dictionary.put(value, dictionary.size());
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt((utf8.length + 1) << 1);
+            writeBytes(utf8);
+        }
+
+        private void writeSignedVarInt(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        private void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[position++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, position, value.length);
+            position += value.length;
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + length));
+            }
+        }
+
+    }
+
+    private static class Decoder {
+
+        private final List<String> dictionary = new ArrayList<>();
+        private final ByteBuffer buffer;
+
+        private Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private MinecraftServer readServer() throws IOException {
+            int formatVersion = buffer.get() & 0xFF;
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported encoded server format version " + formatVersion);
+            }
+            int type = buffer.get();
+            if (type < SERVER_TYPE || type > QUERY_RESPONSE_TYPE) {
+                throw new IOException("Invalid encoded server: unknown type " + type);
+            }
+            Address address;
+            try {
+                address = new Address(readRequiredString(), readVarInt());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid encoded server: " + e.getMessage(), e);
+            }
+            Description description = new Description(readRequiredString());
+            int flags = buffer.get();
+
+            Version version = null;
+            if ((flags & VERSION_FLAG) != 0) {
+                version = new Version(readString(), readSignedVarInt());
+            }
+            Players players = readPlayers();
+            String favicon = null;
+            if ((flags & RAW_FAVICON_FLAG) != 0) {
+                String prefix = readRequiredString();
+                byte[] faviconData = new byte[readLength()];
+                buffer.get(faviconData);
+                favicon = prefix + ByteUtils.encodeBase64(faviconData);
+            } else if ((flags & TEXT_FAVICON_FLAG) != 0) {
+                favicon = readString();
+            }
+
+            if (type == PING_RESPONSE_TYPE) {
+                if (!(players instanceof PingResponse.PlayersStatus)) {
+                    throw new IOException("Invalid encoded server: ping response players are not a players status");
+                }
+                return new PingResponse(address, description, (PingResponse.PlayersStatus) players, version, favicon, readSignedVarInt());
+            } else if (type == QUERY_RESPONSE_TYPE) {
+                if (!(players instanceof QueryResponse.PlayersList)) {
+                    throw new IOException("Invalid encoded server: query response players are not a players list");
+                }
+                String mapName = readString();
+                String serverType = readString();
+                List<String> plugins = readStrings();
+                return new QueryResponse(address, description, (QueryResponse.PlayersList) players, version, mapName, serverType, plugins);
+            }
+            return new MinecraftServer(address, description, players, version, favicon);
+        }
+
+        private Players readPlayers() throws IOException {
+            int playersType = buffer.get();
+            int max = readSignedVarInt();
+            if (playersType == PLAYERS_STATUS) {
+                int count = readSignedVarInt();
+                int sampleSize = readLength();
+                List<PingResponse.Player> sample = new ArrayList<>(Math.min(sampleSize, buffer.remaining() / 17));
+                for (int i = 0; i < sampleSize; i++) {
+                    UUID id = new UUID(buffer.getLong(), buffer.getLong());
+                    sample.add(new PingResponse.Player(id, readString()));
+                }
+                return new PingResponse.PlayersStatus(max, count, sample);
+            } else if (playersType == PLAYERS_LIST) {
+                int count = readSignedVarInt();
+                return new QueryResponse.PlayersList(max, count, readStrings());
+            } else if (playersType == PLAYERS) {
+                return new Players(max);
+            }
+            throw new IOException("Invalid encoded server: unknown players type " + playersType);
+        }
+
+        private List<String> readStrings() throws IOException {
+            int header = readVarInt();
+            if (header == 0) {
+                return null;
+            }
+            int size = header - 1;
+            if (size < 0 || size > buffer.remaining()) {
+                throw new IOException("Invalid encoded server: invalid list size " + size);
+            }
+            List<String> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private String readRequiredString() throws IOException {
+            String value = readString();
+            if (value == null) {
+                throw new IOException("Invalid encoded server: missing required string");
+            }
+            return value;
+        }
+
+        private String readString() throws IOException {
+            int header = readVarInt();
+            if (header == 0) {
+                return null;
+            }
+            if ((header & 1) != 0) {
+                int index = header >>> 1;
+                if (index >= dictionary.size()) {
+                    throw new IOException("Invalid encoded server: invalid string reference " + index);
+                }
+                return dictionary.get(index);
+            }
+            int length = (header >>> 1) - 1;
+            if (length > buffer.remaining()) {
+                throw new IOException("Invalid encoded server: invalid string length " + length);
+            }
+            String value;
+            if (buffer.hasArray()) {
+                value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            } else {
+                byte[] utf8 = new byte[length];
+                buffer.get(utf8);
+                value = new String(utf8, StandardCharsets.UTF_8);
+            }
+            dictionary.add(value);
+            return value;
+        }
+
+        private int readLength() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Invalid encoded server: invalid length " + length);
+            }
+            return length;
+        }
+
+        private int readSignedVarInt() throws IOException {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte part = buffer.get();
+                value |= (part & 0x7F) << shift;
+                if ((part & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Invalid encoded server: VarInt is too big");
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+/**
+ * Adjusts the poll interval of a single server within fixed bounds based on its observed volatility.<br>
+ * The interval is halved whenever the player count or description changed since the last poll, and grows slowly
+ * while the server stays the same. While the server is unreachable, the interval backs off exponentially,
+ * and it returns to what it was once the server is reachable again.
+ */
+class AdaptiveInterval {
+
+    private static final double CHANGED_FACTOR = 0.5;
+    private static final double UNCHANGED_FACTOR = 1.25;
+    private static final int MAX_BACKOFF_SHIFT = 30;
+
+    private final long minNanos;
+    private final long maxNanos;
+
+    private long intervalNanos;
+    private int failures;
+    private boolean polled;
+    private int lastCount;
+    private String lastDescription;
+
+    /**
+     * @param initialNanos the initial interval in nanoseconds
+     * @param minNanos the minimum interval in nanoseconds
+     * @param maxNanos the maximum interval in nanoseconds
+     */
+    AdaptiveInterval(long initialNanos, long minNanos, long maxNanos) {
+        this.minNanos = minNanos;
+        this.maxNanos = maxNanos;
+        intervalNanos = clamp(initialNanos);
+    }
+
+    /**
+     * @return the current interval in nanoseconds
+     */
+    synchronized long getIntervalNanos() {
+        if (failures > 0) {
+            long backoff = intervalNanos << Math.min(failures, MAX_BACKOFF_SHIFT);
+            return (backoff > 0 ? clamp(backoff) : maxNanos);
+        }
+        return intervalNanos;
+    }
+
+    /**
+     * @param response the status response of a successful poll
+     * @return the interval in nanoseconds until the next poll
+     */
+    synchronized long onStatus(PingResponse response) {
+        int count = response.getPlayers().getCount();
+        String description = response.getDescription().getText();
+
+        if (polled && (count != lastCount || !description.equals(lastDescription))) {
+            intervalNanos = clamp((long) (intervalNanos * CHANGED_FACTOR));
+        } else {
+            intervalNanos = clamp((long) (intervalNanos * UNCHANGED_FACTOR));
+        }
+        failures = 0;
+        polled = true;
+        lastCount = count;
+        lastDescription = description;
+        return intervalNanos;
+    }
+
+    /**
+     * @return the interval in nanoseconds until the next poll
+     */
+    synchronized long onFailure() {
+        // Forget the last status so that the server is not considered changed when it comes back
+        polled = false;
+        failures++;
+        return getIntervalNanos();
+    }
+
+    private long clamp(long nanos) {
+        return Math.min(Math.max(nanos, minNanos), maxNanos);
+    }
+
+}
@@ -0,0 +1,624 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import com.deadmandungeons.serverstatus.AdaptiveTimeouts;
+import com.deadmandungeons.serverstatus.CircuitBreaker;
+import com.deadmandungeons.serverstatus.InetServerAddress;
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.LocalAddressPool;
+import com.deadmandungeons.serverstatus.ping.MinecraftPinger;
+import com.deadmandungeons.serverstatus.ping.PingProtocol;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.ping.Pinger;
+import com.deadmandungeons.serverstatus.ping.ProtocolDetector;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Periodically polls the status of a registry of servers, each with its own poll interval.
+ * <p>
+ * Polls are scheduled on a hashed {@link TimingWheel} so the scheduling overhead stays constant regardless of how many
+ * servers are monitored, and every poll is randomly offset by a jitter so that polls do not synchronize into bursts.
+ * Due polls are dispatched to the given executor, but no more than the {@link #maxConcurrentPolls(int) maximum} run concurrently.
+ * The result of each poll is passed to every registered {@link StatusListener}.
+ * <p>
+ * With {@link #adaptiveIntervals(long, long, TimeUnit) adaptive intervals} enabled, each server is polled more often while
+ * it is changing and less often while it is idle or unreachable. A {@link #pollBudget(double) poll budget} stretches every
+ * interval equally whenever the intervals together would exceed the budget, so busy servers stay the freshest.
+ * <p>
+ * <b>Note:</b> The monitor should be configured before it is started.
+ */
+public class ServerStatusMonitor {
+
+    private static final int DEFAULT_TIMEOUT = 6000;
+    private static final int DEFAULT_MAX_CONCURRENT_POLLS = 64;
+    private static final double DEFAULT_JITTER = 0.1;
+    private static final long DEFAULT_TICK_MILLIS = 100;
+    private static final int DEFAULT_WHEEL_SIZE = 1024;
+    // Poll rates are summed in polls per 1000000 seconds to avoid floating point accumulation
+    private static final double RATE_SCALE = 1e15;
+
+    private final Executor executor;
+    private final ConcurrentMap<Address, MonitoredServer> servers = new ConcurrentHashMap<>();
+    private final List<StatusListener> listeners = new CopyOnWriteArrayList<>();
+    private final Queue<MonitoredServer> backlog = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pollRate = new AtomicLong();
+
+    private int timeout = DEFAULT_TIMEOUT;
+    private int maxConcurrentPolls = DEFAULT_MAX_CONCURRENT_POLLS;
+    private double jitter = DEFAULT_JITTER;
+    private long tickNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TICK_MILLIS);
+    private int wheelSize = DEFAULT_WHEEL_SIZE;
+    private long minIntervalNanos;
+    private long maxIntervalNanos;
+    private double pollBudget;
+    private CircuitBreaker circuitBreaker;
+    private AdaptiveTimeouts adaptiveTimeouts;
+    private boolean abortiveClose;
+    private int sendBufferSize;
+    private int receiveBufferSize;
+    private LocalAddressPool localAddresses;
+
+    private volatile TimingWheel<MonitoredServer> wheel;
+    private volatile Semaphore permits;
+    private volatile Thread timerThread;
+
+    /**
+     * @param executor the executor that polls are dispatched to
+     */
+    public ServerStatusMonitor(Executor executor) {
+        this.executor = executor;
+    }
+
+
+    /**
+     * @param timeout the timeout in milliseconds used when connecting or reading from a server (6000 by default)
+     * @return this ServerStatusMonitor instance
+     */
+    public ServerStatusMonitor timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * @param maxConcurrentPolls the maximum amount of polls that may run at the same time (64 by default)
+     * @return this ServerStatusMonitor instance
+     * @throws IllegalArgumentException if maxConcurrentPolls is less than 1
+     */
+    public ServerStatusMonitor maxConcurrentPolls(int maxConcurrentPolls) throws IllegalArgumentException {
+        if (maxConcurrentPolls < 1) {
+            throw new IllegalArgumentException("maxConcurrentPolls must be at least 1");
+        }
+        this.maxConcurrentPolls = maxConcurrentPolls;
+        return this;
+    }
+
+    /**
+     * @param jitter the fraction of each poll interval that polls are randomly offset by (0.1 by default)
+     * @return this ServerStatusMonitor instance
+     * @throws IllegalArgumentException if jitter is not between 0 and 1
+     */
+    public ServerStatusMonitor jitter(double jitter) throws IllegalArgumentException {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1");
+        }
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * @param duration the scheduling precision of polls (100 milliseconds by default)
+     * @param unit the unit of the duration
+     * @return this ServerStatusMonitor instance
+     */
+    public ServerStatusMonitor tickDuration(long duration, TimeUnit unit) {
+        tickNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * @param wheelSize the amount of buckets in the timing wheel (1024 by default).
+     * Poll intervals longer than <code>wheelSize</code> ticks are checked once per wheel rotation until they are due.
+     * @return this ServerStatusMonitor instance
+     */
+    public ServerStatusMonitor wheelSize(int wheelSize) {
+        this.wheelSize = wheelSize;
+        return this;
+    }
+
+    /**
+     * Adjust the poll interval of each server within the given bounds, starting from the interval it is monitored with.
+     * The interval is shortened while the player count or description of the server keeps changing, lengthened while it stays the same,
+     * and backed off exponentially while the server is unreachable.
+     * @param min the minimum poll interval
+     * @param max the maximum poll interval
+     * @param unit the unit of the bounds
+     * @return this ServerStatusMonitor instance
+     * @throws IllegalArgumentException if min is not positive or max is less than min
+     */
+    public ServerStatusMonitor adaptiveIntervals(long min, long max, TimeUnit unit) throws IllegalArgumentException {
+        if (min <= 0 || max < min) {
+            throw new IllegalArgumentException("min must be positive and max must not be less than min");
+        }
+        minIntervalNanos = unit.toNanos(min);
+        maxIntervalNanos = unit.toNanos(max);
+        return this;
+    }
+
+    /**
+     * @param pollsPerSecond the average amount of polls per second that all servers together should not exceed,
+     * or 0 for no limit (no limit by default)
+     * @return this ServerStatusMonitor instance
+     * @throws IllegalArgumentException if pollsPerSecond is negative
+     */
+    public ServerStatusMonitor pollBudget(double pollsPerSecond) throws IllegalArgumentException {
+        if (pollsPerSecond < 0) {
+            throw new IllegalArgumentException("pollsPerSecond cannot be negative");
+        }
+        pollBudget = pollsPerSecond;
+        return this;
+    }
+
+    /**
+     * Stop polling servers that keep failing until the cool down of their circuit has elapsed.
+     * While the circuit of a server is open, each of its polls fails immediately with a {@link CircuitBreaker.CircuitOpenException}
+     * which the listeners receive as a failed poll, so the poll capacity goes to the servers that are reachable.
+     * @param circuitBreaker the circuit breaker of the polls, or <code>null</code> to always poll (by default)
+     * @return this ServerStatusMonitor instance
+     */
+    public ServerStatusMonitor circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Derive the timeout of each poll from the durations of the recent polls of the same server rather than the fixed timeout,
+     * so that a server that stops answering delays its poll for about as long as its slowest normal polls.
+     * @param adaptiveTimeouts the adaptive timeouts of the polls, or <code>null</code> to use the fixed timeout (by default)
+     * @return this ServerStatusMonitor instance
+     */
+    public ServerStatusMonitor adaptiveTimeouts(AdaptiveTimeouts adaptiveTimeouts) {
+        this.adaptiveTimeouts = adaptiveTimeouts;
+        return this;
+    }
+
+    /**
+     * Reset the connection of each poll when it is closed rather than closing it gracefully,
+     * so that polling many servers does not leave local ports in TIME_WAIT.
+     * @return this ServerStatusMonitor instance
+     * @see MinecraftPinger#abortiveClose()
+     */
+    public ServerStatusMonitor abortiveClose() {
+        abortiveClose = true;
+        return this;
+    }
+
+    /**
+     * @param sendBufferSize the size in bytes of the socket send buffer of each poll, or 0 for the system default
+     * @param receiveBufferSize the size in bytes of the socket receive buffer of each poll, or 0 for the system default
+     * @return this ServerStatusMonitor instance
+     */
+    public ServerStatusMonitor socketBufferSizes(int sendBufferSize, int receiveBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    /**
+     * @param localAddresses the pool of local addresses to bind the connection of each poll to,
+     * or <code>null</code> to let the system choose (by default)
+     * @return this ServerStatusMonitor instance
+     * @see LocalAddressPool
+     */
+    public ServerStatusMonitor localAddresses(LocalAddressPool localAddresses) {
+        this.localAddresses = localAddresses;
+        return this;
+    }
+
+
+    /**
+     * @param listener the listener to receive the result of each poll
+     */
+    public void addListener(StatusListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to stop receiving the result of each poll
+     */
+    public void removeListener(StatusListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start monitoring the given server, or change its poll interval if it is already monitored.
+     * @param address the address of the server
+     * @param interval the interval between polls of the server, or the initial interval if adaptive intervals are enabled
+     * @param unit the unit of the interval
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public void monitor(Address address, long interval, TimeUnit unit) throws IllegalArgumentException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        long intervalNanos = unit.toNanos(interval);
+
+        MonitoredServer server = new MonitoredServer(address, intervalNanos);
+        MonitoredServer existing = servers.putIfAbsent(address, server);
+        if (existing != null) {
+            existing.resetInterval(intervalNanos);
+        } else {
+            pollRate.addAndGet(toPollRate(server.intervalNanos));
+            scheduleFirst(server);
+        }
+    }
+
+    /**
+     * Stop monitoring the given server, and forget its adaptive timeout estimate and the state of its circuit.
+     * A poll of the server that is already running will still be completed.
+     * @param address the address of the server
+     * @return <code>true</code> if the server was monitored
+     */
+    public boolean unmonitor(Address address) {
+        MonitoredServer server = servers.remove(address);
+        if (server != null) {
+            server.cancel();
+            if (adaptiveTimeouts != null) {
+                adaptiveTimeouts.remove(address);
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.reset(address);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param address the address of the server
+     * @return <code>true</code> if the server is monitored
+     */
+    public boolean isMonitored(Address address) {
+        return servers.containsKey(address);
+    }
+
+    /**
+     * @return an unmodifiable view of the addresses of all monitored servers
+     */
+    public Set<Address> getMonitoredServers() {
+        return Collections.unmodifiableSet(servers.keySet());
+    }
+
+
+    /**
+     * Start polling the monitored servers
+     * @throws IllegalStateException if the monitor is already running
+     */
+    public synchronized void start() throws IllegalStateException {
+        if (timerThread != null) {
+            throw new IllegalStateException("monitor is already running");
+        }
+        wheel = new TimingWheel<>(tickNanos, wheelSize);
+        if (permits == null) {
+            permits = new Semaphore(maxConcurrentPolls);
+        }
+        for (MonitoredServer server : servers.values()) {
+            scheduleFirst(server);
+        }
+
+        timerThread = new Thread(new Timer(wheel), "ServerStatusMonitor");
+        timerThread.setDaemon(true);
+        timerThread.start();
+    }
+
+    /**
+     * Stop polling the monitored servers. Polls that are already running will still be completed,
+     * and if the monitor is started again, a server is not polled again until its running poll has completed.
+     */
+    public synchronized void stop() {
+        Thread thread = timerThread;
+        if (thread != null) {
+            timerThread = null;
+            wheel = null;
+            backlog.clear();
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the monitor is running
+     */
+    public boolean isRunning() {
+        return timerThread != null;
+    }
+
+
+    private void scheduleFirst(MonitoredServer server) {
+        TimingWheel<MonitoredServer> wheel = this.wheel;
+        // The server may be scheduled concurrently by monitor and start, but it must only be scheduled once per wheel
+        if (wheel != null && server.scheduleOn(wheel)) {
+            // Spread the first polls evenly over the interval
+            long delay = (long) (ThreadLocalRandom.current().nextDouble() * server.intervalNanos);
+            wheel.schedule(server, delay);
+        }
+    }
+
+    private void scheduleNext(MonitoredServer server, TimingWheel<MonitoredServer> wheel) {
+        // Polls dispatched before the monitor was restarted must not be scheduled on the new wheel
+        if (wheel == this.wheel && !server.cancelled) {
+            long interval = (long) (server.intervalNanos * getBudgetFactor());
+            wheel.schedule(server, applyJitter(interval, jitter, ThreadLocalRandom.current().nextDouble()));
+        }
+    }
+
+    /**
+     * @param intervalNanos the interval to offset
+     * @param jitter the fraction of the interval that it may be offset by in either direction
+     * @param random a random value from 0 inclusive to 1 exclusive
+     * @return the interval randomly offset by at most the jitter fraction of the interval
+     */
+    static long applyJitter(long intervalNanos, double jitter, double random) {
+        return intervalNanos + (long) (intervalNanos * jitter * (2 * random - 1));
+    }
+
+    // The factor that all intervals must be stretched by to stay within the poll budget
+    private double getBudgetFactor() {
+        if (pollBudget <= 0) {
+            return 1;
+        }
+        double pollsPerSecond = pollRate.get() / RATE_SCALE * TimeUnit.SECONDS.toNanos(1);
+        return Math.max(pollsPerSecond / pollBudget, 1);
+    }
+
+    private static long toPollRate(long intervalNanos) {
+        return (long) (RATE_SCALE / intervalNanos);
+    }
+
+    private void dispatch(MonitoredServer server, TimingWheel<MonitoredServer> wheel) {
+        if (server.cancelled) {
+            return;
+        }
+        if (permits.tryAcquire()) {
+            execute(server, wheel);
+        } else {
+            backlog.add(server);
+        }
+    }
+
+    private void dispatchBacklog() {
+        Semaphore permits = this.permits;
+        while (!backlog.isEmpty() && permits.tryAcquire()) {
+            MonitoredServer server = backlog.poll();
+            TimingWheel<MonitoredServer> wheel = this.wheel;
+            if (server == null || wheel == null) {
+                permits.release();
+                return;
+            }
+            execute(server, wheel);
+        }
+    }
+
+    private void execute(final MonitoredServer server, final TimingWheel<MonitoredServer> wheel) {
+        // A poll dispatched before the monitor was restarted may still be running, so this poll is skipped until the next interval
+        if (!server.polling.compareAndSet(false, true)) {
+            permits.release();
+            scheduleNext(server, wheel);
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    poll(server, wheel);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            server.polling.set(false);
+            permits.release();
+            scheduleNext(server, wheel);
+        }
+    }
+
+    private void poll(MonitoredServer server, TimingWheel<MonitoredServer> wheel) {
+        try {
+            if (!server.cancelled) {
+                PingResponse response;
+                try {
+                    response = server.poll();
+                } catch (IOException e) {
+                    server.onFailure();
+                    publishFailure(server.address, e);
+                    return;
+                }
+                server.onStatus(response);
+                publishStatus(server.address, response);
+            }
+        } finally {
+            server.polling.set(false);
+            scheduleNext(server, wheel);
+            permits.release();
+            dispatchBacklog();
+        }
+    }
+
+    private void publishStatus(Address address, PingResponse response) {
+        for (StatusListener listener : listeners) {
+            try {
+                listener.onStatus(address, response);
+            } catch (RuntimeException e) {
+                // A faulty listener must not prevent the other listeners from being called
+            }
+        }
+    }
+
+    private void publishFailure(Address address, IOException cause) {
+        for (StatusListener listener : listeners) {
+            try {
+                listener.onFailure(address, cause);
+            } catch (RuntimeException e) {
+                // A faulty listener must not prevent the other listeners from being called
+            }
+        }
+    }
+
+
+    private class Timer implements Runnable, TimingWheel.Handler<MonitoredServer> {
+
+        private final TimingWheel<MonitoredServer> wheel;
+
+        private Timer(TimingWheel<MonitoredServer> wheel) {
+            this.wheel = wheel;
+        }
+
+        @Override
+        public void run() {
+            while (wheel == ServerStatusMonitor.this.wheel) {
+                wheel.advance(System.nanoTime(), this);
+                dispatchBacklog();
+                LockSupport.parkNanos(wheel.nanosUntilNextTick(System.nanoTime()));
+            }
+        }
+
+        @Override
+        public void expired(MonitoredServer server) {
+            dispatch(server, wheel);
+        }
+
+    }
+
+    private class MonitoredServer {
+
+        private final Address address;
+        // Set while a poll of this server is dispatched to the executor, which may outlive the wheel it was dispatched from
+        private final AtomicBoolean polling = new AtomicBoolean();
+        private volatile long intervalNanos;
+        private volatile boolean cancelled;
+
+        private TimingWheel<MonitoredServer> scheduledWheel;
+        private AdaptiveInterval adaptiveInterval;
+
+        // Only accessed by the single poll of this server that may run at a time, as guarded by polling
+        private Pinger pinger;
+        private InetServerAddress pingerAddress;
+        private int pingerTimeout;
+
+        private MonitoredServer(Address address, long intervalNanos) {
+            this.address = address;
+            this.intervalNanos = initInterval(intervalNanos);
+        }
+
+        private synchronized void resetInterval(long intervalNanos) {
+            setInterval(initInterval(intervalNanos));
+        }
+
+        private long initInterval(long intervalNanos) {
+            if (maxIntervalNanos > 0) {
+                adaptiveInterval = new AdaptiveInterval(intervalNanos, minIntervalNanos, maxIntervalNanos);
+                return adaptiveInterval.getIntervalNanos();
+            }
+            return intervalNanos;
+        }
+
+        private synchronized void onStatus(PingResponse response) {
+            if (adaptiveInterval != null) {
+                setInterval(adaptiveInterval.onStatus(response));
+            }
+        }
+
+        private synchronized void onFailure() {
+            if (adaptiveInterval != null) {
+                setInterval(adaptiveInterval.onFailure());
+            }
+        }
+
+        private synchronized void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                pollRate.addAndGet(-toPollRate(intervalNanos));
+            }
+        }
+
+        private void setInterval(long nanos) {
+            if (!cancelled) {
+                pollRate.addAndGet(toPollRate(nanos) - toPollRate(intervalNanos));
+                intervalNanos = nanos;
+            }
+        }
+
+        private synchronized boolean scheduleOn(TimingWheel<MonitoredServer> wheel) {
+            if (scheduledWheel == wheel) {
+                return false;
+            }
+            scheduledWheel = wheel;
+            return true;
+        }
+
+        private PingResponse poll() throws IOException {
+            if (circuitBreaker == null) {
+                return ping();
+            }
+            return circuitBreaker.execute(address, new Callable<PingResponse>() {
+                @Override
+                public PingResponse call() throws IOException {
+                    return ping();
+                }
+            });
+        }
+
+        private PingResponse ping() throws IOException {
+            AdaptiveTimeouts timeouts = adaptiveTimeouts;
+            int pollTimeout = (timeouts != null ? timeouts.getTimeout(address) : timeout);
+            // Small changes of the adaptive timeout are ignored so that the pinger is not recreated on every poll
+            if (pinger == null || Math.abs(pollTimeout - pingerTimeout) > pingerTimeout / 4) {
+                // Reusing the pinger reuses its encoded request packets and remembered protocol
+                pingerAddress = InetServerAddress.resolve(address);
+                MinecraftPinger minecraftPinger = new MinecraftPinger(pingerAddress, pollTimeout).pipelined()
+                        .sendBufferSize(sendBufferSize).receiveBufferSize(receiveBufferSize).localAddresses(localAddresses);
+                if (abortiveClose) {
+                    minecraftPinger.abortiveClose();
+                }
+                pinger = minecraftPinger.auto();
+                pingerTimeout = pollTimeout;
+            }
+            ProtocolDetector detector = ProtocolDetector.getDefault();
+            // The protocol is remembered for the resolved address, which may be the target of an SRV record
+            PingProtocol knownProtocol = detector.getProtocol(pingerAddress);
+            long startTime = System.nanoTime();
+            PingResponse response;
+            try {
+                response = pinger.pingServerStatus();
+            } catch (IOException e) {
+                // Resolve the address again on the next poll in case it changed
+                pinger = null;
+                if (timeouts != null) {
+                    timeouts.onFailure(address, e);
+                }
+                throw e;
+            }
+            // A poll that completes after the server is unmonitored must not record a new estimate,
+            // and a poll that had to probe the protocol also took the time of the failed probes, so it is not a sample
+            if (timeouts != null && !cancelled && knownProtocol != null && knownProtocol == detector.getProtocol(pingerAddress)) {
+                timeouts.onSuccess(address, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            }
+            return response;
+        }
+
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.StatusFingerprint;
+import com.deadmandungeons.serverstatus.monitor.StatusChangeEvent.Type;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link StatusListener} that compares the {@link StatusFingerprint fingerprints} of consecutive polls of each server,
+ * and emits a typed {@link StatusChangeEvent} to every registered {@link StatusChangeListener} for each detected change.
+ * A poll that did not change anything emits no events, so listeners only do work on change.
+ * <p>
+ * Register the detector with {@link ServerStatusMonitor#addListener(StatusListener)} to detect the changes of monitored servers.
+ */
+public class StatusChangeDetector implements StatusListener {
+
+    private final ConcurrentMap<Address, LastStatus> lastStatuses = new ConcurrentHashMap<>();
+    private final List<StatusChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param listener the listener to receive detected changes
+     */
+    public void addListener(StatusChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to stop receiving detected changes
+     */
+    public void removeListener(StatusChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Forget the last status of the given server, for example after it is no longer monitored
+     * @param address the address of the server
+     */
+    public void forget(Address address) {
+        lastStatuses.remove(address);
+    }
+
+
+    @Override
+    public void onStatus(Address address, PingResponse response) {
+        LastStatus last = lastStatuses.put(address, new LastStatus(response));
+        PingResponse previous = (last != null ? last.response : null);
+        if (previous == null) {
+            fire(Type.WENT_ONLINE, address, null, response, null);
+            return;
+        }
+
+        StatusFingerprint before = previous.getFingerprint();
+        StatusFingerprint after = response.getFingerprint();
+        if (before.equals(after)) {
+            return;
+        }
+        if (before.getPlayerCount() != after.getPlayerCount()) {
+            fire(Type.PLAYER_COUNT_CHANGED, address, previous, response, null);
+        }
+        if (before.getPlayerMax() != after.getPlayerMax()) {
+            fire(Type.PLAYER_MAX_CHANGED, address, previous, response, null);
+        }
+        if (before.getPlayersHash() != after.getPlayersHash()) {
+            fire(Type.PLAYER_SAMPLE_CHANGED, address, previous, response, null);
+        }
+        if (before.getVersionHash() != after.getVersionHash()) {
+            fire(Type.VERSION_CHANGED, address, previous, response, null);
+        }
+        if (before.getDescriptionHash() != after.getDescriptionHash()) {
+            fire(Type.DESCRIPTION_CHANGED, address, previous, response, null);
+        }
+        if (before.getFaviconHash() != after.getFaviconHash()) {
+            fire(Type.FAVICON_CHANGED, address, previous, response, null);
+        }
+    }
+
+    @Override
+    public void onFailure(Address address, IOException cause) {
+        LastStatus last = lastStatuses.put(address, LastStatus.OFFLINE);
+        if (last != LastStatus.OFFLINE) {
+            fire(Type.WENT_OFFLINE, address, (last != null ? last.response : null), null, cause);
+        }
+    }
+
+
+    private void fire(Type type, Address address, PingResponse previous, PingResponse current, IOException cause) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        StatusChangeEvent event = new StatusChangeEvent(type, address, previous, current, cause);
+        for (StatusChangeListener listener : listeners) {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException e) {
+                // A faulty listener must not prevent the other listeners from being called
+            }
+        }
+    }
+
+    private static class LastStatus {
+
+        private static final LastStatus OFFLINE = new LastStatus(null);
+
+        private final PingResponse response;
+
+        private LastStatus(PingResponse response) {
+            this.response = response;
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+import java.io.IOException;
+
+/**
+ * A change of a monitored server between two consecutive polls, detected by a {@link StatusChangeDetector}
+ */
+public class StatusChangeEvent {
+
+    private final Type type;
+    private final Address address;
+    private final PingResponse previous;
+    private final PingResponse current;
+    private final IOException cause;
+
+    StatusChangeEvent(Type type, Address address, PingResponse previous, PingResponse current, IOException cause) {
+        this.type = type;
+        this.address = address;
+        this.previous = previous;
+        this.current = current;
+        this.cause = cause;
+    }
+
+    /**
+     * @return the type of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the monitored address of the server
+     */
+    public Address getAddress() {
+        return address;
+    }
+
+    /**
+     * @return the status response of the previous poll, or <code>null</code> if the server was offline or not polled yet
+     */
+    public PingResponse getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return the status response of the current poll, or <code>null</code> if the server {@link Type#WENT_OFFLINE went offline}
+     */
+    public PingResponse getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return the cause of the failed poll if the server {@link Type#WENT_OFFLINE went offline}, or <code>null</code> otherwise
+     */
+    public IOException getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return "StatusChangeEvent{type: " + getType() + ", address: " + getAddress() + "}";
+    }
+
+
+    /**
+     * The types of changes that are detected between two consecutive polls
+     */
+    public enum Type {
+
+        /**
+         * The server responded after it was offline or before it was polled
+         */
+        WENT_ONLINE,
+        /**
+         * The server failed to respond after it was online or before it was polled
+         */
+        WENT_OFFLINE,
+        /**
+         * The player count changed
+         */
+        PLAYER_COUNT_CHANGED,
+        /**
+         * The maximum amount of players changed
+         */
+        PLAYER_MAX_CHANGED,
+        /**
+         * The sample of online players changed
+         */
+        PLAYER_SAMPLE_CHANGED,
+        /**
+         * The version name or protocol changed
+         */
+        VERSION_CHANGED,
+        /**
+         * The description changed
+         */
+        DESCRIPTION_CHANGED,
+        /**
+         * The favicon changed
+         */
+        FAVICON_CHANGED
+
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+/**
+ * Receives the changes detected by a {@link StatusChangeDetector}.<br>
+ * Listeners are called from the thread that made the poll, so they should not block.
+ */
+public interface StatusChangeListener {
+
+    /**
+     * Called once for each type of change detected between two consecutive polls of a server
+     * @param event the change event
+     */
+    void onChange(StatusChangeEvent event);
+
+}
@@ -0,0 +1,28 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+import java.io.IOException;
+
+/**
+ * Receives the result of each poll made by a {@link ServerStatusMonitor}.<br>
+ * Listeners are called from the thread that made the poll, so they should not block.
+ */
+public interface StatusListener {
+
+    /**
+     * Called when a monitored server was successfully polled
+     * @param address the monitored address of the server
+     * @param response the status response of the server
+     */
+    void onStatus(Address address, PingResponse response);
+
+    /**
+     * Called when polling a monitored server failed
+     * @param address the monitored address of the server
+     * @param cause the cause of the failure
+     */
+    void onFailure(Address address, IOException cause);
+
+}
@@ -0,0 +1,128 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A hashed timing wheel which schedules tasks in constant time regardless of how many tasks are scheduled.<br>
+ * Tasks may be scheduled from any thread, but the wheel must only be advanced by a single thread.
+ * Each task expires on the first tick at or after its deadline, so the precision is limited to the tick duration.
+ * @param <T> the task type
+ */
+class TimingWheel<T> {
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout<T>>[] buckets;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final long startTime;
+
+    private long tick;
+
+    /**
+     * @param tickNanos the duration of each tick in nanoseconds
+     * @param wheelSize the amount of buckets in the wheel, which is rounded up to a power of 2
+     */
+    TimingWheel(long tickNanos, int wheelSize) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickNanos must be positive");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("wheelSize must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = tickNanos;
+        mask = size - 1;
+        buckets = createBuckets(size);
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Schedule the given task to expire after the given delay. This is safe to call from any thread.
+     * @param task the task to schedule
+     * @param delayNanos the delay in nanoseconds
+     */
+    void schedule(T task, long delayNanos) {
+        pending.add(new Timeout<>(task, System.nanoTime() + Math.max(delayNanos, 0)));
+    }
+
+    /**
+     * Process every tick that elapsed up to the given time, and pass each expired task to the given handler.
+     * This must only be called by a single thread.
+     * @param now the current {@link System#nanoTime()}
+     * @param handler the handler of expired tasks
+     */
+    void advance(long now, Handler<T> handler) {
+        long currentTick = (now - startTime) / tickNanos;
+        while (tick <= currentTick) {
+            transferPending();
+
+            Queue<Timeout<T>> bucket = buckets[(int) (tick & mask)];
+            for (int i = bucket.size(); i > 0; i--) {
+                Timeout<T> timeout = bucket.poll();
+                if (timeout.deadlineTick <= tick) {
+                    handler.expired(timeout.task);
+                } else {
+                    // The deadline is in a later rotation of the wheel
+                    bucket.add(timeout);
+                }
+            }
+            tick++;
+        }
+    }
+
+    /**
+     * @param now the current {@link System#nanoTime()}
+     * @return the nanoseconds remaining until the next tick that has not been processed yet
+     */
+    long nanosUntilNextTick(long now) {
+        return Math.max(startTime + tick * tickNanos - now, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Queue<Timeout<T>>[] createBuckets(int size) {
+        Queue<Timeout<T>>[] buckets = (Queue<Timeout<T>>[]) new Queue<?>[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        return buckets;
+    }
+
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            // Round up so that a task never expires before its deadline
+            long deadlineTick = (timeout.deadline - startTime + tickNanos - 1) / tickNanos;
+            timeout.deadlineTick = Math.max(deadlineTick, tick);
+            buckets[(int) (timeout.deadlineTick & mask)].add(timeout);
+        }
+    }
+
+
+    /**
+     * Handles the tasks of a {@link TimingWheel} as they expire
+     * @param <T> the task type
+     */
+    interface Handler<T> {
+
+        void expired(T task);
+    }
+
+    private static class Timeout<T> {
+
+        private final T task;
+        private final long deadline;
+        private long deadlineTick;
+
+        private Timeout(T task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+    }
+
+}
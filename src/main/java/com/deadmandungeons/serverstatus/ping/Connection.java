@@ -8,6 +8,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -15,6 +16,7 @@ import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
@@ -30,6 +32,10 @@ public class Connection implements AutoCloseable {
         private int timeout;
         private boolean tcpNoDelay;
         private boolean buffered;
+        private boolean abortiveClose;
+        private int sendBufferSize;
+        private int receiveBufferSize;
+        private LocalAddressPool localAddresses;
 
         private final InetAddress address;
         private final int port;
@@ -54,6 +60,44 @@ public class Connection implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Reset the connection when it is closed rather than closing it gracefully, by setting <code>SO_LINGER</code> to 0.
+         * This keeps the local port out of TIME_WAIT, so that many connections can be made in a short time without exhausting
+         * the ephemeral ports, at the cost of discarding any data that was not sent yet when the connection is closed.
+         * @return this Connector instance
+         */
+        public Connector abortiveClose() {
+            abortiveClose = true;
+            return this;
+        }
+
+        /**
+         * @param sendBufferSize the size in bytes of the socket send buffer, or 0 for the system default
+         * @return this Connector instance
+         */
+        public Connector sendBufferSize(int sendBufferSize) {
+            this.sendBufferSize = sendBufferSize;
+            return this;
+        }
+
+        /**
+         * @param receiveBufferSize the size in bytes of the socket receive buffer, or 0 for the system default
+         * @return this Connector instance
+         */
+        public Connector receiveBufferSize(int receiveBufferSize) {
+            this.receiveBufferSize = receiveBufferSize;
+            return this;
+        }
+
+        /**
+         * @param localAddresses the pool of local addresses to bind the connection to, or <code>null</code> to let the system choose
+         * @return this Connector instance
+         */
+        public Connector localAddresses(LocalAddressPool localAddresses) {
+            this.localAddresses = localAddresses;
+            return this;
+        }
+
         public Connection connect() throws ConnectException {
             try {
                 Socket socket = new Socket();
@@ -61,6 +105,19 @@ public class Connection implements AutoCloseable {
                 socket.setReuseAddress(true);
                 socket.setSoTimeout(timeout);
                 socket.setTcpNoDelay(tcpNoDelay);
+                if (abortiveClose) {
+                    socket.setSoLinger(true, 0);
+                }
+                // Buffer sizes must be set before connecting for the TCP window scale to account for them
+                if (sendBufferSize > 0) {
+                    socket.setSendBufferSize(sendBufferSize);
+                }
+                if (receiveBufferSize > 0) {
+                    socket.setReceiveBufferSize(receiveBufferSize);
+                }
+                if (localAddresses != null) {
+                    socket.bind(new InetSocketAddress(localAddresses.next(), 0));
+                }
 
                 // Roughly determine latency from TCP 3-way handshake
                 long startTime = System.nanoTime();
@@ -120,6 +177,22 @@ public class Connection implements AutoCloseable {
         return new RequestPacket();
     }
 
+    /**
+     * Send the given packets which were already encoded by {@link PacketBuilder#toByteArray()}.<br>
+     * The packets are written together and flushed once, so they leave in as few segments as possible.
+     * @param packets the length prefixed packets to send
+     * @return the time in nanoseconds that the packets were sent
+     * @throws IOException if an error occurs writing to the socket
+     */
+    public long send(byte[]... packets) throws IOException {
+        long timeSent = System.nanoTime();
+        for (byte[] packet : packets) {
+            output.write(packet);
+        }
+        output.flush();
+        return timeSent;
+    }
+
     public ResponsePacket readPacket() throws IOException {
         int length = readVarInt(input);
         long timeReceived = System.nanoTime();
@@ -129,6 +202,27 @@ public class Connection implements AutoCloseable {
         return new ResponsePacket(bytes, timeReceived);
     }
 
+    /**
+     * Read only the length header of the next packet so that the packet body can be read later with {@link #readPacket(int)}
+     * @return the length of the next packet
+     * @throws IOException if an error occurs reading from the socket
+     */
+    public int readPacketLength() throws IOException {
+        return readVarInt(input);
+    }
+
+    /**
+     * Read the body of a packet whose length header was already read by {@link #readPacketLength()}
+     * @param length the length of the packet
+     * @return the response packet which was received at the time its body was read
+     * @throws IOException if an error occurs reading from the socket
+     */
+    public ResponsePacket readPacket(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new ResponsePacket(bytes, System.nanoTime());
+    }
+
     @Override
     public void close() throws IOException {
         socket.close();
@@ -160,9 +254,12 @@ public class Connection implements AutoCloseable {
         throw new IOException("Server sent a varint that was too big!");
     }
 
-    public class RequestPacket extends DataOutputStream {
+    /**
+     * Encodes a packet independently of any connection so that it can be sent any number of times with {@link #send(byte[]...)}
+     */
+    public static class PacketBuilder extends DataOutputStream {
 
-        private RequestPacket() {
+        public PacketBuilder() {
             super(new ByteArrayOutputStream());
         }
 
@@ -171,28 +268,46 @@ public class Connection implements AutoCloseable {
         }
 
         public void writeVarUTF(String value) throws IOException {
-            writeVarInt(value.length());
-            write(value.getBytes(StandardCharsets.UTF_8));
+            // The length prefix is the amount of UTF-8 bytes, not chars
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes);
         }
 
-        public long send() throws IOException {
+        /**
+         * @return the packet bytes prefixed with the packet length
+         * @throws IOException if an error occurs encoding the packet
+         */
+        public byte[] toByteArray() throws IOException {
             byte[] bytes = ((ByteArrayOutputStream) out).toByteArray();
 
-            long timeSent = System.nanoTime();
-            Connection.writeVarInt(output, bytes.length);
-            output.write(bytes);
-            output.flush();
-            return timeSent;
+            ByteArrayOutputStream packetBytes = new ByteArrayOutputStream(bytes.length + 5);
+            Connection.writeVarInt(new DataOutputStream(packetBytes), bytes.length);
+            packetBytes.write(bytes);
+            return packetBytes.toByteArray();
+        }
+
+    }
+
+    public class RequestPacket extends PacketBuilder {
+
+        private RequestPacket() {
+        }
+
+        public long send() throws IOException {
+            return Connection.this.send(toByteArray());
         }
 
     }
 
     public class ResponsePacket extends DataInputStream {
 
+        private final byte[] bytes;
         private final long timeReceived;
 
         private ResponsePacket(byte[] bytes, final long timeReceived) throws IOException {
             super(new ByteArrayInputStream(bytes));
+            this.bytes = bytes;
             this.timeReceived = timeReceived;
         }
 
@@ -212,6 +327,21 @@ public class Connection implements AutoCloseable {
             return new String(bytes, StandardCharsets.UTF_8);
         }
 
+        /**
+         * Read a length prefixed byte sequence without copying it out of this packet
+         * @return a buffer of the next length prefixed bytes which is backed by this packet
+         * @throws IOException if the packet does not contain the prefixed length of bytes
+         */
+        public ByteBuffer readVarBytes() throws IOException {
+            int length = readVarInt();
+            int offset = bytes.length - available();
+            if (length < 0 || length > available()) {
+                throw new EOFException();
+            }
+            skipBytes(length);
+            return ByteBuffer.wrap(bytes, offset, length);
+        }
+
     }
 
 }
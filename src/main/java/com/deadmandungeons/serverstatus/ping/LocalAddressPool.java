@@ -0,0 +1,59 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of local source addresses that connections are bound to in round-robin order.
+ * <p>
+ * A connection that is bound before it connects is assigned an ephemeral port of its local address regardless of
+ * the remote address, so each local address provides a single range of ephemeral ports shared by all servers.
+ * Spreading connections over several local addresses, such as the addresses of multiple network interfaces or
+ * <code>127.0.0.x</code> for local servers, multiplies the amount of connections that can be in use or in TIME_WAIT
+ * before the ephemeral ports are exhausted.
+ * <p>
+ * <b>Note:</b> An unbound connection can reuse a local port for different remote addresses, so a pool with a single
+ * local address may allow fewer concurrent connections to many servers than not using a pool at all.
+ * @see Connection.Connector#localAddresses(LocalAddressPool)
+ */
+public class LocalAddressPool {
+
+    private final List<InetAddress> addresses;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param addresses the local addresses to bind to, which must be assigned to a network interface of this machine
+     * @throws IllegalArgumentException if addresses is empty
+     */
+    public LocalAddressPool(List<InetAddress> addresses) throws IllegalArgumentException {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("addresses cannot be empty");
+        }
+        this.addresses = Collections.unmodifiableList(new ArrayList<>(addresses));
+    }
+
+
+    /**
+     * @return the next local address in round-robin order
+     */
+    public InetAddress next() {
+        int index = next.getAndIncrement() & Integer.MAX_VALUE;
+        return addresses.get(index % addresses.size());
+    }
+
+    /**
+     * @return an unmodifiable list of the local addresses in this pool
+     */
+    public List<InetAddress> getAddresses() {
+        return addresses;
+    }
+
+    @Override
+    public String toString() {
+        return "LocalAddressPool" + addresses;
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.deadmandungeons.serverstatus.ping;
 
+import com.deadmandungeons.serverstatus.ByteUtils;
 import com.deadmandungeons.serverstatus.InetServerAddress;
 import com.deadmandungeons.serverstatus.MinecraftServer;
-import com.deadmandungeons.serverstatus.ping.Connection.RequestPacket;
+import com.deadmandungeons.serverstatus.StatusInterner;
+import com.deadmandungeons.serverstatus.ping.Connection.PacketBuilder;
 import com.deadmandungeons.serverstatus.ping.Connection.ResponsePacket;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -24,15 +26,23 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.ConnectException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A {@link Pinger} implementation that uses the current SLP protocol for servers on 1.7.x and above.<br>
  * For servers on older versions, use {@link #legacy47()} or {@link #legacy17()}
+ * <p>
+ * The request packets for the target server are only encoded once per instance,
+ * so the same instance should be reused when repeatedly pinging the same server.
+ * The handshake packets of recently pinged servers are also shared between instances,
+ * so that pingers created for a single request, such as those of {@link com.deadmandungeons.serverstatus.MinecraftServerStatus},
+ * do not encode the handshake again for each request.
  * @see <a href="http://wiki.vg/Server_List_Ping#Current">Current SLP protocol</a>
  */
 public class MinecraftPinger implements Pinger {
@@ -44,6 +54,36 @@ public class MinecraftPinger implements Pinger {
     private static final byte HANDSHAKE_STATE = 1;
     private static final long PING_TOKEN = 3735928559L; // Arbitrary value
 
+    // Packet length followed by the packet data
+    private static final byte[] STATUS_REQUEST = {1, STATUS_PACKET_ID};
+    private static final byte[] PING_REQUEST = ByteBuffer.allocate(10).put((byte) 9).put(PING_PACKET_ID).putLong(PING_TOKEN).array();
+
+    // Must be a power of two
+    private static final int RECENT_PLAYERS_SLOTS = 16384;
+    // The recently parsed sample players of all servers in slots selected by the bits of their UUID, so that a repeated player
+    // is the same instance across responses and pinger instances. Each slot holds the last player hashed to it, so lookups
+    // and evictions are single lock-free reads and writes, and a player is only evicted by another player in the same slot.
+    private static final AtomicReferenceArray<PingResponse.Player> RECENT_PLAYERS = new AtomicReferenceArray<>(RECENT_PLAYERS_SLOTS);
+
+    // Must be a power of two
+    private static final int RECENT_HANDSHAKES_SLOTS = 1024;
+    // The handshake packets of recently pinged servers of all instances in slots selected by the hash of their address,
+    // in the same way as the recent players
+    private static final AtomicReferenceArray<Handshake> RECENT_HANDSHAKES = new AtomicReferenceArray<>(RECENT_HANDSHAKES_SLOTS);
+
+    private static final StatusDecoder<String> JSON_STATUS = new StatusDecoder<String>() {
+        @Override
+        public String decode(ResponsePacket response) throws IOException {
+            return response.readVarUTF();
+        }
+    };
+    private static final StatusDecoder<ByteBuffer> RAW_STATUS = new StatusDecoder<ByteBuffer>() {
+        @Override
+        public ByteBuffer decode(ResponsePacket response) throws IOException {
+            return response.readVarBytes();
+        }
+    };
+
     private final Gson gson = new GsonBuilder().registerTypeAdapter(PingResponse.class, new ResponseDeserializer())
             .registerTypeAdapter(BaseComponent.class, new ComponentSerializer())
             .registerTypeAdapter(TextComponent.class, new TextComponentSerializer())
@@ -52,6 +92,16 @@ public class MinecraftPinger implements Pinger {
     private final InetServerAddress address;
     private final int timeout;
 
+    private volatile byte[] handshakeRequest;
+    private volatile byte[] legacyRequest47;
+
+    private boolean pipelined;
+    private boolean eagerPing;
+    private boolean abortiveClose;
+    private int sendBufferSize;
+    private int receiveBufferSize;
+    private LocalAddressPool localAddresses;
+
     /**
      * @param address the address of the Minecraft server to connect with for each ping operation
      * @param timeout the timeout in milliseconds that should be used when connecting or reading from the socket
@@ -61,20 +111,84 @@ public class MinecraftPinger implements Pinger {
         this.timeout = timeout;
     }
 
+    /**
+     * Send the handshake and status request packets together in one segment rather than flushing each packet separately.
+     * The server handles the packets in order, so the status request does not need to wait for the handshake.
+     * @return this MinecraftPinger instance
+     */
+    public MinecraftPinger pipelined() {
+        pipelined = true;
+        return this;
+    }
+
+    /**
+     * Send the ping packet as soon as the status response header arrives in {@link #pingServerStatus()} and {@link #pingRawStatus(boolean)},
+     * rather than after the whole status response body is received. The pong is read before the status response is parsed,
+     * so the latency is still measured from the ping packet to the pong.
+     * <p>
+     * <b>Note:</b> The server sends the pong after the rest of the status response body, so the latency includes the time to
+     * transfer the rest of the body, and is higher than the latency of a separate ping for large responses such as those with a favicon.
+     * @return this MinecraftPinger instance
+     */
+    public MinecraftPinger eagerPing() {
+        eagerPing = true;
+        return this;
+    }
+
+    /**
+     * Reset each connection when it is closed rather than closing it gracefully,
+     * so that frequent pings do not leave local ports in TIME_WAIT.
+     * @return this MinecraftPinger instance
+     * @see Connection.Connector#abortiveClose()
+     */
+    public MinecraftPinger abortiveClose() {
+        abortiveClose = true;
+        return this;
+    }
+
+    /**
+     * @param sendBufferSize the size in bytes of the socket send buffer, or 0 for the system default
+     * @return this MinecraftPinger instance
+     * @see Connection.Connector#sendBufferSize(int)
+     */
+    public MinecraftPinger sendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+        return this;
+    }
+
+    /**
+     * @param receiveBufferSize the size in bytes of the socket receive buffer, or 0 for the system default
+     * @return this MinecraftPinger instance
+     * @see Connection.Connector#receiveBufferSize(int)
+     */
+    public MinecraftPinger receiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    /**
+     * @param localAddresses the pool of local addresses to bind each connection to, or <code>null</code> to let the system choose
+     * @return this MinecraftPinger instance
+     * @see Connection.Connector#localAddresses(LocalAddressPool)
+     */
+    public MinecraftPinger localAddresses(LocalAddressPool localAddresses) {
+        this.localAddresses = localAddresses;
+        return this;
+    }
+
     @Override
     public int ping() throws IOException {
         try (Connection connection = connect()) {
-            handshake(connection);
-
-            return ping(connection);
+            // Nothing is read between the handshake and ping packets so they are sent together
+            return ping(connection, getHandshakeRequest(), PING_REQUEST);
         }
     }
 
     @Override
     public MinecraftServer pingServer() throws IOException {
         try (Connection connection = connect()) {
-            handshake(connection);
-            String response = readStatus(connection);
+            requestStatus(connection);
+            String response = readStatus(connection.readPacket(), JSON_STATUS);
 
             return new MinecraftServer(parseResponse(response));
         }
@@ -83,11 +197,36 @@ public class MinecraftPinger implements Pinger {
     @Override
     public PingResponse pingServerStatus() throws IOException {
         try (Connection connection = connect()) {
-            handshake(connection);
-            String response = readStatus(connection);
-            int latency = ping(connection);
+            requestStatus(connection);
 
-            return new PingResponse(parseResponse(response), latency);
+            int[] latency = new int[1];
+            String response = readStatusAndPing(connection, JSON_STATUS, latency);
+
+            return new PingResponse(parseResponse(response), latency[0]);
+        }
+    }
+
+    /**
+     * Retrieve the status JSON of the target Minecraft server and the ping latency without decoding or parsing the JSON,
+     * so that it can be forwarded as is. The status is read straight from the response packet into the returned buffer.
+     * @param validate <code>true</code> to {@link RawStatus#isWellFormed() check the structure} of the status JSON
+     * @return a RawStatus instance containing the status JSON and the ping latency
+     * @throws ConnectException if an error occurs connecting to the server
+     * @throws InvalidServerResponse if validate is <code>true</code> and the status JSON is not well formed
+     * @throws IOException if an error occurs communicating with the server
+     */
+    public RawStatus pingRawStatus(boolean validate) throws IOException {
+        try (Connection connection = connect()) {
+            requestStatus(connection);
+
+            int[] latency = new int[1];
+            ByteBuffer payload = readStatusAndPing(connection, RAW_STATUS, latency);
+
+            RawStatus status = new RawStatus(payload, latency[0]);
+            if (validate && !status.isWellFormed()) {
+                throw new InvalidServerResponse("status is not a well formed JSON object");
+            }
+            return status;
         }
     }
 
@@ -118,32 +257,94 @@ public class MinecraftPinger implements Pinger {
         return new LegacyPinger17();
     }
 
+    /**
+     * @param protocol the protocol version to use
+     * @return this Pinger for {@link PingProtocol#CURRENT}, or the legacy Pinger for the given legacy protocol
+     */
+    public Pinger protocol(PingProtocol protocol) {
+        switch (protocol) {
+            case LEGACY_47:
+                return legacy47();
+            case LEGACY_17:
+                return legacy17();
+            default:
+                return this;
+        }
+    }
+
+    /**
+     * For servers on any supported protocol version.<br>
+     * Each protocol is probed in order of likelihood until the server answers, and the answered protocol is remembered
+     * by the {@link ProtocolDetector#getDefault() default ProtocolDetector} so that later pings to the same server
+     * go straight to the right protocol. The server is only probed again after a ping with its remembered protocol fails.
+     * @return a Pinger instance that detects the SLP protocol of the server
+     */
+    public Pinger auto() {
+        return ProtocolDetector.getDefault().detect(this);
+    }
+
+    /**
+     * @return the address of the Minecraft server to connect with for each ping operation
+     */
+    public InetServerAddress getAddress() {
+        return address;
+    }
+
 
     private Connection connect() throws ConnectException {
-        return Connection.to(address).timeout(timeout).buffered().tcpNoDelay().connect();
+        return createConnector().buffered().tcpNoDelay().connect();
     }
 
-    private void handshake(Connection connection) throws IOException {
-        RequestPacket handshakePacket = connection.createPacket();
+    // The socket options that apply to the connections of every protocol
+    private Connection.Connector createConnector() {
+        Connection.Connector connector = Connection.to(address).timeout(timeout).sendBufferSize(sendBufferSize)
+                .receiveBufferSize(receiveBufferSize).localAddresses(localAddresses);
+        if (abortiveClose) {
+            connector.abortiveClose();
+        }
+        return connector;
+    }
 
-        handshakePacket.writeVarInt(HANDSHAKE_PACKET_ID);
-        handshakePacket.writeVarInt(PROTOCOL_VERSION);
-        handshakePacket.writeVarUTF(address.getHost());
-        handshakePacket.writeShort(address.getPort());
-        handshakePacket.writeVarInt(HANDSHAKE_STATE);
+    private byte[] getHandshakeRequest() throws IOException {
+        byte[] request = handshakeRequest;
+        if (request != null) {
+            return request;
+        }
+        int hash = address.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (RECENT_HANDSHAKES_SLOTS - 1);
+        Handshake handshake = RECENT_HANDSHAKES.get(slot);
+        if (handshake != null && handshake.address.equals(address)) {
+            request = handshake.request;
+        } else {
+            PacketBuilder handshakePacket = new PacketBuilder();
+
+            handshakePacket.writeVarInt(HANDSHAKE_PACKET_ID);
+            handshakePacket.writeVarInt(PROTOCOL_VERSION);
+            handshakePacket.writeVarUTF(address.getHost());
+            handshakePacket.writeShort(address.getPort());
+            handshakePacket.writeVarInt(HANDSHAKE_STATE);
+
+            request = handshakePacket.toByteArray();
+            RECENT_HANDSHAKES.set(slot, new Handshake(address, request));
+        }
+        handshakeRequest = request;
+        return request;
+    }
 
-        handshakePacket.send();
+    // The ping packet must be the last of the given request packets
+    private int ping(Connection connection, byte[]... requests) throws IOException {
+        long timeSent;
+        try {
+            timeSent = connection.send(requests);
+        } catch (IOException e) {
+            return connection.getLatency();
+        }
+        return pong(connection, timeSent);
     }
 
-    private int ping(Connection connection) throws IOException {
+    private int pong(Connection connection, long timeSent) throws IOException {
         ResponsePacket pongPacket = null;
         try {
-            RequestPacket pingPacket = connection.createPacket();
-            pingPacket.writeVarInt(PING_PACKET_ID);
-            pingPacket.writeLong(PING_TOKEN);
-
-            long timeSent = pingPacket.send();
-
             pongPacket = connection.readPacket();
             int id = pongPacket.readVarInt();
             if (id != PING_PACKET_ID) {
@@ -165,17 +366,36 @@ public class MinecraftPinger implements Pinger {
         }
     }
 
-    private String readStatus(Connection connection) throws IOException {
-        RequestPacket request = connection.createPacket();
-        request.writeVarInt(STATUS_PACKET_ID);
-        request.send();
+    private void requestStatus(Connection connection) throws IOException {
+        if (pipelined) {
+            connection.send(getHandshakeRequest(), STATUS_REQUEST);
+        } else {
+            connection.send(getHandshakeRequest());
+            connection.send(STATUS_REQUEST);
+        }
+    }
 
-        ResponsePacket response = connection.readPacket();
+    // Reads the status response and pings the server in the configured order, and stores the latency in latency[0]
+    private <T> T readStatusAndPing(Connection connection, StatusDecoder<T> decoder, int[] latency) throws IOException {
+        T status;
+        if (eagerPing) {
+            int length = connection.readPacketLength();
+            long timeSent = connection.send(PING_REQUEST);
+            status = readStatus(connection.readPacket(length), decoder);
+            latency[0] = pong(connection, timeSent);
+        } else {
+            status = readStatus(connection.readPacket(), decoder);
+            latency[0] = ping(connection, PING_REQUEST);
+        }
+        return status;
+    }
+
+    private static <T> T readStatus(ResponsePacket response, StatusDecoder<T> decoder) throws IOException {
         int id = response.readVarInt();
         if (id != STATUS_PACKET_ID) {
             throw new IOException("Received invalid status response packet");
         }
-        return response.readVarUTF();
+        return decoder.decode(response);
     }
 
     private PingResponse parseResponse(String response) throws InvalidServerResponse {
@@ -203,6 +423,25 @@ public class MinecraftPinger implements Pinger {
     }
 
 
+    // The request packets are never modified once encoded, so they can be shared between instances
+    private static class Handshake {
+
+        private final MinecraftServer.Address address;
+        private final byte[] request;
+
+        private Handshake(MinecraftServer.Address address, byte[] request) {
+            this.address = address;
+            this.request = request;
+        }
+
+    }
+
+    // Decodes the status JSON that follows the packet id of a status response
+    private interface StatusDecoder<T> {
+
+        T decode(ResponsePacket response) throws IOException;
+    }
+
     private class ResponseDeserializer implements JsonDeserializer<PingResponse> {
 
         @Override
@@ -235,9 +474,9 @@ public class MinecraftPinger implements Pinger {
             }
             if (descriptionElem.isJsonObject()) {
                 TextComponent component = context.deserialize(descriptionElem, TextComponent.class);
-                return new MinecraftServer.Description(component);
+                return StatusInterner.intern(new MinecraftServer.Description(component));
             } else if (descriptionElem.isJsonPrimitive() && descriptionElem.getAsJsonPrimitive().isString()) {
-                return new MinecraftServer.Description(descriptionElem.getAsString());
+                return StatusInterner.internDescription(descriptionElem.getAsString());
             } else {
                 throw new JsonParseException("'description' element is not the expected type (string or object)");
             }
@@ -256,7 +495,7 @@ public class MinecraftPinger implements Pinger {
             String versionName = parseStringElement(versionObject, "version", "name");
             int versionProtocol = parseIntElement(versionObject, "version", "protocol");
 
-            return new MinecraftServer.Version(versionName, versionProtocol);
+            return StatusInterner.intern(new MinecraftServer.Version(versionName, versionProtocol));
         }
 
         private PingResponse.PlayersStatus parseResponsePlayers(JsonObject responseObject) throws JsonParseException {
@@ -285,25 +524,37 @@ public class MinecraftPinger implements Pinger {
                     JsonObject playerObject = playerElement.getAsJsonObject();
 
                     String idStr = parseStringElement(playerObject, "player", "id");
-                    if (idStr.length() == 32) {
-                        idStr = idStr.replaceAll("(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})", "$1-$2-$3-$4-$5");
-                    }
-                    UUID id;
-                    try {
-                        id = UUID.fromString(idStr);
-                    } catch (IllegalArgumentException e) {
-                        throw new JsonParseException("player 'id' element is not a valid UUID string");
-                    }
-
                     String name = parseStringElement(playerObject, "player", "name");
 
-                    playerSample.add(new PingResponse.Player(id, name));
+                    // Reuse the recently parsed player when it is the same
+                    UUID id = parsePlayerId(idStr);
+                    long hash = (id.getMostSignificantBits() ^ id.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+                    int slot = (int) (hash >>> 32) & (RECENT_PLAYERS_SLOTS - 1);
+                    PingResponse.Player player = RECENT_PLAYERS.get(slot);
+                    if (player == null || !player.getId().equals(id) || !player.getName().equals(name)) {
+                        player = new PingResponse.Player(id, name);
+                        RECENT_PLAYERS.set(slot, player);
+                    }
+                    playerSample.add(player);
                 }
             }
 
             return new PingResponse.PlayersStatus(playerMax, playerCount, playerSample);
         }
 
+        private UUID parsePlayerId(String idStr) throws JsonParseException {
+            UUID id = ByteUtils.parseUuid(idStr);
+            if (id == null) {
+                // Fall back to the lenient parsing of UUID.fromString for non-standard forms
+                try {
+                    id = UUID.fromString(idStr);
+                } catch (IllegalArgumentException e) {
+                    throw new JsonParseException("player 'id' element is not a valid UUID string");
+                }
+            }
+            return id;
+        }
+
         private String parseStringElement(JsonObject parentObject, String parentObjectName, String elementName) throws JsonParseException {
             JsonElement element = parentObject.get(elementName);
             if (element == null) {
@@ -369,7 +620,7 @@ public class MinecraftPinger implements Pinger {
 
         private Connection connect() throws ConnectException {
             // tcpNoDelay and buffering is unnecessary
-            return Connection.to(address).timeout(timeout).connect();
+            return createConnector().connect();
         }
 
         // There is no ping/pong scheme in legacy protocol so calculate latency from a normal status request and response
@@ -413,6 +664,14 @@ public class MinecraftPinger implements Pinger {
 
         @Override
         protected byte[] getRequestData() throws IOException {
+            byte[] requestData = legacyRequest47;
+            if (requestData == null) {
+                legacyRequest47 = requestData = createRequestData();
+            }
+            return requestData;
+        }
+
+        private byte[] createRequestData() throws IOException {
             ByteArrayOutputStream requestBytes = new ByteArrayOutputStream();
             DataOutputStream request = new DataOutputStream(requestBytes);
 
@@ -445,10 +704,10 @@ public class MinecraftPinger implements Pinger {
 
             int versionProtocol = parseIntField(responseFields[0], "protocol");
             String versionName = responseFields[1];
-            MinecraftServer.Version version = new MinecraftServer.Version(versionName, versionProtocol);
+            MinecraftServer.Version version = StatusInterner.intern(new MinecraftServer.Version(versionName, versionProtocol));
 
             String descriptionText = responseFields[2];
-            MinecraftServer.Description description = new MinecraftServer.Description(descriptionText);
+            MinecraftServer.Description description = StatusInterner.internDescription(descriptionText);
 
             int playerCount = parseIntField(responseFields[3], "player count");
             int playerMax = parseIntField(responseFields[4], "player max");
@@ -463,9 +722,11 @@ public class MinecraftPinger implements Pinger {
 
         private static final char FIELD_SEPARATOR_17 = '\u00A7';
 
+        private final byte[] requestData = {(byte) STATUS_PACKET_ID};
+
         @Override
         protected byte[] getRequestData() throws IOException {
-            return new byte[]{(byte) STATUS_PACKET_ID};
+            return requestData;
         }
 
         @Override
@@ -487,7 +748,7 @@ public class MinecraftPinger implements Pinger {
             }
 
             String descriptionText = responseFields[0];
-            MinecraftServer.Description description = new MinecraftServer.Description(descriptionText);
+            MinecraftServer.Description description = StatusInterner.internDescription(descriptionText);
 
             int playerCount = parseIntField(responseFields[1], "player count");
             int playerMax = parseIntField(responseFields[2], "player max");
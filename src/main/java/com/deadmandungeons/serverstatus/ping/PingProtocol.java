@@ -0,0 +1,25 @@
+package com.deadmandungeons.serverstatus.ping;
+
+/**
+ * The versions of the Server List Ping protocol supported by {@link MinecraftPinger}
+ * @see <a href="http://wiki.vg/Server_List_Ping">SLP protocol</a>
+ */
+public enum PingProtocol {
+
+    /**
+     * The current protocol for servers on 1.7.x and above
+     * @see MinecraftPinger
+     */
+    CURRENT,
+    /**
+     * The legacy protocol for servers on 1.4.x to 1.6.x
+     * @see MinecraftPinger#legacy47()
+     */
+    LEGACY_47,
+    /**
+     * The legacy protocol for servers on Beta-1.8 to 1.3.x
+     * @see MinecraftPinger#legacy17()
+     */
+    LEGACY_17
+
+}
@@ -0,0 +1,154 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import com.deadmandungeons.serverstatus.MinecraftServer;
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Detects which {@link PingProtocol} a server supports by probing each protocol in order of likelihood,
+ * and remembers the protocol that each server answered so that later pings go straight to the right one.<br>
+ * A server is only probed again after it answers a ping with its remembered protocol with a response that can not be read.
+ * A failure to connect, a timeout or an interruption says nothing about the protocol of the server, so it is thrown
+ * without probing the other protocols, and the remembered protocol is kept.
+ */
+public class ProtocolDetector {
+
+    private static final ProtocolDetector DEFAULT = new ProtocolDetector();
+
+    private static final PingProtocol[] PROBE_ORDER = {PingProtocol.CURRENT, PingProtocol.LEGACY_47, PingProtocol.LEGACY_17};
+
+    private final ConcurrentMap<Address, PingProtocol> protocols = new ConcurrentHashMap<>();
+
+    /**
+     * @return the shared ProtocolDetector instance used by {@link MinecraftPinger#auto()}
+     */
+    public static ProtocolDetector getDefault() {
+        return DEFAULT;
+    }
+
+
+    /**
+     * @param address the address of the server
+     * @return the protocol the server last answered, or <code>null</code> if it is unknown
+     */
+    public PingProtocol getProtocol(Address address) {
+        return protocols.get(address);
+    }
+
+    /**
+     * Forget the protocol of the given server so that it is probed again on the next ping
+     * @param address the address of the server
+     */
+    public void forget(Address address) {
+        protocols.remove(address);
+    }
+
+    /**
+     * Forget the protocols of all servers
+     */
+    public void clear() {
+        protocols.clear();
+    }
+
+    /**
+     * @param pinger the pinger for the target server
+     * @return a Pinger that uses the remembered protocol of the target server, or detects it if unknown
+     */
+    public Pinger detect(MinecraftPinger pinger) {
+        return new DetectingPinger(pinger);
+    }
+
+
+    private class DetectingPinger implements Pinger {
+
+        private final MinecraftPinger pinger;
+
+        private DetectingPinger(MinecraftPinger pinger) {
+            this.pinger = pinger;
+        }
+
+        @Override
+        public int ping() throws IOException {
+            return execute(new PingOperation<Integer>() {
+                @Override
+                public Integer apply(Pinger pinger) throws IOException {
+                    return pinger.ping();
+                }
+            });
+        }
+
+        @Override
+        public MinecraftServer pingServer() throws IOException {
+            return execute(new PingOperation<MinecraftServer>() {
+                @Override
+                public MinecraftServer apply(Pinger pinger) throws IOException {
+                    return pinger.pingServer();
+                }
+            });
+        }
+
+        @Override
+        public PingResponse pingServerStatus() throws IOException {
+            return execute(new PingOperation<PingResponse>() {
+                @Override
+                public PingResponse apply(Pinger pinger) throws IOException {
+                    return pinger.pingServerStatus();
+                }
+            });
+        }
+
+        private <T> T execute(PingOperation<T> operation) throws IOException {
+            Address address = pinger.getAddress();
+            IOException failure = null;
+
+            PingProtocol knownProtocol = protocols.get(address);
+            if (knownProtocol != null) {
+                try {
+                    return operation.apply(pinger.protocol(knownProtocol));
+                } catch (ConnectException | InterruptedIOException e) {
+                    // The server is unreachable or did not answer in time which says nothing about its protocol
+                    throw e;
+                } catch (IOException e) {
+                    protocols.remove(address, knownProtocol);
+                    failure = e;
+                }
+            }
+
+            for (PingProtocol protocol : PROBE_ORDER) {
+                if (protocol == knownProtocol) {
+                    continue;
+                }
+                try {
+                    T result = operation.apply(pinger.protocol(protocol));
+                    protocols.put(address, protocol);
+                    return result;
+                } catch (ConnectException | InterruptedIOException e) {
+                    // No other protocol will be able to connect or be answered in time either
+                    if (failure != null) {
+                        e.addSuppressed(failure);
+                    }
+                    throw e;
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            throw failure;
+        }
+
+    }
+
+    private interface PingOperation<T> {
+
+        T apply(Pinger pinger) throws IOException;
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The undecoded status JSON of a server and the ping latency, for forwarding the status without parsing it.
+ * @see MinecraftPinger#pingRawStatus(boolean)
+ */
+public class RawStatus {
+
+    private static final int INITIAL_NESTING = 16;
+
+    private final ByteBuffer payload;
+    private final int latency;
+
+    /**
+     * @param payload the UTF-8 encoded status JSON
+     * @param latency the ping latency in milliseconds
+     */
+    public RawStatus(ByteBuffer payload, int latency) {
+        this.payload = payload.asReadOnlyBuffer();
+        this.latency = latency;
+    }
+
+    /**
+     * @return a new read-only buffer of the UTF-8 encoded status JSON, which shares the same content for each call
+     */
+    public ByteBuffer getPayload() {
+        return payload.duplicate();
+    }
+
+    /**
+     * @return the ping latency in milliseconds
+     */
+    public int getLatency() {
+        return latency;
+    }
+
+    /**
+     * Cheaply check the structure of the status JSON without parsing it.
+     * The payload must be a single object whose brackets are balanced and whose strings are terminated and do not contain
+     * control characters. The values themselves are not checked, so a well formed payload is not necessarily a valid status.
+     * @return <code>true</code> if the payload is a structurally well formed JSON object
+     */
+    public boolean isWellFormed() {
+        int start = payload.position();
+        int end = payload.limit();
+        while (start < end && isWhitespace(payload.get(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(payload.get(end - 1))) {
+            end--;
+        }
+        if (start == end || payload.get(start) != '{') {
+            return false;
+        }
+
+        byte[] nesting = new byte[INITIAL_NESTING];
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < end; i++) {
+            byte b = payload.get(i);
+            if (inString) {
+                if (b == '"') {
+                    inString = false;
+                } else if (b == '\\') {
+                    i++;
+                } else if (b >= 0 && b < 0x20) {
+                    return false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                if (depth == nesting.length) {
+                    byte[] newNesting = new byte[depth * 2];
+                    System.arraycopy(nesting, 0, newNesting, 0, depth);
+                    nesting = newNesting;
+                }
+                nesting[depth++] = (b == '{' ? (byte) '}' : (byte) ']');
+            } else if (b == '}' || b == ']') {
+                if (depth == 0 || nesting[--depth] != b) {
+                    return false;
+                }
+                // The root object must end at the end of the payload
+                if (depth == 0 && i != end - 1) {
+                    return false;
+                }
+            }
+        }
+        return depth == 0 && !inString;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    @Override
+    public String toString() {
+        return "RawStatus{length: " + payload.remaining() + ", latency: " + latency + "}";
+    }
+
+}
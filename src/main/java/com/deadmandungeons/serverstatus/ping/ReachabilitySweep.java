@@ -0,0 +1,252 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import com.deadmandungeons.serverstatus.InetServerAddress;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A first pass liveness check of many servers that only establishes a TCP connection with each server,
+ * so that only the reachable servers need a full status ping.
+ * <p>
+ * The connections are made without blocking from the calling thread, up to the concurrency limit at a time,
+ * and each connection is reset as soon as it is established, so it does not leave the local port in TIME_WAIT.
+ * The latency of a reachable server is the time of its TCP handshake, like {@link Connection#getLatency()}.
+ */
+public class ReachabilitySweep {
+
+    private static final int DEFAULT_TIMEOUT = 1000;
+    private static final int DEFAULT_CONCURRENCY = 256;
+
+    private int timeout = DEFAULT_TIMEOUT;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private LocalAddressPool localAddresses;
+
+
+    /**
+     * @param timeout the time in milliseconds after which a connection attempt fails (1000 by default)
+     * @return this ReachabilitySweep instance
+     * @throws IllegalArgumentException if timeout is less than 1
+     */
+    public ReachabilitySweep timeout(int timeout) throws IllegalArgumentException {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("timeout must be at least 1");
+        }
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * @param concurrency the maximum amount of connection attempts in progress at a time (256 by default)
+     * @return this ReachabilitySweep instance
+     * @throws IllegalArgumentException if concurrency is less than 1
+     */
+    public ReachabilitySweep concurrency(int concurrency) throws IllegalArgumentException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * @param localAddresses the pool of local addresses to bind each connection to, or <code>null</code> to let the system choose
+     * @return this ReachabilitySweep instance
+     */
+    public ReachabilitySweep localAddresses(LocalAddressPool localAddresses) {
+        this.localAddresses = localAddresses;
+        return this;
+    }
+
+
+    /**
+     * Attempt a TCP connection with each of the given servers
+     * @param addresses the resolved addresses of the servers
+     * @return the reachability of each of the given servers in the same order
+     * @throws IOException if the selector could not be opened
+     */
+    public List<Reachability> sweep(List<InetServerAddress> addresses) throws IOException {
+        Reachability[] results = new Reachability[addresses.size()];
+        // Every attempt has the same timeout, so the attempts expire in the order they were started
+        Queue<Attempt> attempts = new ArrayDeque<>();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        try (Selector selector = Selector.open()) {
+            int next = 0;
+            int inProgress = 0;
+            while (next < results.length || inProgress > 0) {
+                while (next < results.length && inProgress < concurrency) {
+                    Attempt attempt = start(selector, next, addresses.get(next), results);
+                    if (attempt != null) {
+                        attempts.add(attempt);
+                        inProgress++;
+                    }
+                    next++;
+                }
+                if (inProgress == 0) {
+                    continue;
+                }
+
+                Attempt oldest = attempts.peek();
+                long remaining = oldest.startTime + timeoutNanos - System.nanoTime();
+                if (remaining > 0) {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Attempt attempt = (Attempt) key.attachment();
+                    finish(attempt, results);
+                    inProgress--;
+                }
+
+                long now = System.nanoTime();
+                while (!attempts.isEmpty() && (attempts.peek().done || now - attempts.peek().startTime >= timeoutNanos)) {
+                    Attempt attempt = attempts.poll();
+                    if (!attempt.done) {
+                        attempt.done = true;
+                        reset(attempt.channel);
+                        results[attempt.index] = new Reachability(attempt.address, -1);
+                        inProgress--;
+                    }
+                }
+            }
+        } finally {
+            // The attempts that are still in progress if the selector failed
+            for (Attempt attempt : attempts) {
+                reset(attempt.channel);
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+
+    private Attempt start(Selector selector, int index, InetServerAddress address, Reachability[] results) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            // Closing with a zero linger time resets the connection rather than leaving it in TIME_WAIT
+            channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+            if (localAddresses != null) {
+                channel.bind(new InetSocketAddress(localAddresses.next(), 0));
+            }
+
+            long startTime = System.nanoTime();
+            if (channel.connect(new InetSocketAddress(address.getInetAddress(), address.getPort()))) {
+                results[index] = new Reachability(address, elapsedMillis(startTime));
+                reset(channel);
+                return null;
+            }
+            Attempt attempt = new Attempt(index, address, channel, startTime);
+            channel.register(selector, SelectionKey.OP_CONNECT, attempt);
+            return attempt;
+        } catch (IOException e) {
+            results[index] = new Reachability(address, -1);
+            reset(channel);
+            return null;
+        }
+    }
+
+    private void finish(Attempt attempt, Reachability[] results) {
+        int latency = -1;
+        try {
+            if (attempt.channel.finishConnect()) {
+                latency = elapsedMillis(attempt.startTime);
+            }
+        } catch (IOException e) {
+            // The server refused or is unreachable
+        }
+        attempt.done = true;
+        reset(attempt.channel);
+        results[attempt.index] = new Reachability(attempt.address, latency);
+    }
+
+    private static void reset(SocketChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The channel is closed regardless
+            }
+        }
+    }
+
+    private static int elapsedMillis(long startTime) {
+        return (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+
+    /**
+     * The result of a connection attempt with a server
+     */
+    public static class Reachability {
+
+        private final InetServerAddress address;
+        private final int latency;
+
+        private Reachability(InetServerAddress address, int latency) {
+            this.address = address;
+            this.latency = latency;
+        }
+
+        /**
+         * @return the address of the server
+         */
+        public InetServerAddress getAddress() {
+            return address;
+        }
+
+        /**
+         * @return <code>true</code> if a TCP connection was established with the server
+         */
+        public boolean isReachable() {
+            return latency >= 0;
+        }
+
+        /**
+         * @return the time in milliseconds of the TCP handshake with the server, or -1 if the server is not reachable
+         */
+        public int getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return address + (isReachable() ? "[" + latency + "ms]" : "[unreachable]");
+        }
+
+    }
+
+    private static class Attempt {
+
+        private final int index;
+        private final InetServerAddress address;
+        private final SocketChannel channel;
+        private final long startTime;
+
+        private boolean done;
+
+        private Attempt(int index, InetServerAddress address, SocketChannel channel, long startTime) {
+            this.index = index;
+            this.address = address;
+            this.channel = channel;
+            this.startTime = startTime;
+        }
+
+    }
+
+}
@@ -5,6 +5,7 @@ import com.deadmandungeons.serverstatus.InetServerAddress;
 import com.deadmandungeons.serverstatus.MinecraftServer.Address;
 import com.deadmandungeons.serverstatus.MinecraftServer.Description;
 import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.StatusInterner;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
@@ -102,13 +103,13 @@ public class MinecraftQuery {
         byte[][] data = ByteUtils.split(response);
 
         String descriptionText = new String(data[3]);
-        Description description = new Description(descriptionText);
+        Description description = StatusInterner.internDescription(descriptionText);
         // String gameMode = new String(data[5]); // Hardcoded to SMP
         // String gameId = new String(data[7]); // Hardcoded to MINECRAFT
         String versionName = new String(data[9]);
-        Version version = new Version(versionName, 0); // protocol is not returned in response
+        Version version = StatusInterner.intern(new Version(versionName, 0)); // protocol is not returned in response
 
-        String mapName = new String(data[13]);
+        String mapName = StatusInterner.intern(new String(data[13]));
         int playerCount = Integer.parseInt(new String(data[15]));
         int playerMax = Integer.parseInt(new String(data[17]));
 
@@ -118,8 +119,8 @@ public class MinecraftQuery {
 
         String pluginsStr = new String(data[11]);
         int index = pluginsStr.indexOf(": ");
-        String serverType = (index != -1 ? pluginsStr.substring(0, index) : "");
-        List<String> plugins = Arrays.asList((!serverType.isEmpty() ? pluginsStr.replace(serverType + ": ", "") : pluginsStr).split("; "));
+        String serverType = StatusInterner.intern(index != -1 ? pluginsStr.substring(0, index) : "");
+        List<String> plugins = StatusInterner.intern(Arrays.asList((!serverType.isEmpty() ? pluginsStr.replace(serverType + ": ", "") : pluginsStr).split("; ")));
 
         List<String> playerList = new ArrayList<>(data.length - 24);
         for (int i = 25; i < data.length; i++) {
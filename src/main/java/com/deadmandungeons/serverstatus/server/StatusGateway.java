@@ -0,0 +1,283 @@
+package com.deadmandungeons.serverstatus.server;
+
+import com.deadmandungeons.serverstatus.ByteUtils;
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.monitor.StatusListener;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A small HTTP server that serves the latest polled status of servers as JSON to any amount of readers,
+ * so that readers cost no extra pings to the Minecraft servers.
+ * <p>
+ * Register the gateway with {@link com.deadmandungeons.serverstatus.monitor.ServerStatusMonitor#addListener(StatusListener)}
+ * to serve the statuses of the monitored servers. The response bodies are built once per status change, and each has an ETag
+ * so that readers can revalidate with <code>If-None-Match</code> and receive <code>304 Not Modified</code> while nothing changed.
+ * The latency is not included in the JSON for the same reason.
+ * <ul>
+ * <li><code>GET /status/&lt;address&gt;</code> - the JSON status of the server, which is offline if its last poll failed</li>
+ * <li><code>GET /favicon/&lt;address&gt;</code> - the png favicon of the server</li>
+ * </ul>
+ * Servers that have not been polled yet are <code>404 Not Found</code>.
+ */
+public class StatusGateway implements StatusListener {
+
+    private static final String STATUS_PATH = "/status/";
+    private static final String FAVICON_PATH = "/favicon/";
+    private static final String BASE64_MARKER = ";base64,";
+
+    private static final Gson GSON = new Gson();
+
+    private final InetSocketAddress bindAddress;
+    private final ConcurrentMap<Address, Entry> entries = new ConcurrentHashMap<>();
+
+    private Executor executor;
+    private HttpServer server;
+
+    /**
+     * @param bindAddress the local address to serve on, which may have port 0 for an ephemeral port
+     */
+    public StatusGateway(InetSocketAddress bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+
+    /**
+     * @param executor the executor that requests are handled on, or <code>null</code> to handle them on the server thread (by default)
+     * @return this StatusGateway instance
+     */
+    public StatusGateway executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+
+    @Override
+    public void onStatus(Address address, PingResponse response) {
+        Entry entry = null;
+        Entry previous;
+        do {
+            previous = entries.get(address);
+            // The body only depends on fields covered by the fingerprint, so an unchanged status keeps its body and ETag
+            if (previous != null && previous.response != null && previous.response.getFingerprint().equals(response.getFingerprint())) {
+                return;
+            }
+            if (entry == null) {
+                entry = new Entry(address, response);
+            }
+        } while (!update(address, previous, entry));
+    }
+
+    @Override
+    public void onFailure(Address address, IOException cause) {
+        Entry entry = null;
+        Entry previous;
+        do {
+            previous = entries.get(address);
+            if (previous != null && previous.response == null) {
+                return;
+            }
+            if (entry == null) {
+                entry = new Entry(address, null);
+            }
+        } while (!update(address, previous, entry));
+    }
+
+    /**
+     * @param address the address of the server that should no longer be served
+     */
+    public void remove(Address address) {
+        entries.remove(address);
+    }
+
+
+    /**
+     * Bind to the local address and start serving requests
+     * @throws IOException if the local address could not be bound
+     * @throws IllegalStateException if this gateway is already running
+     */
+    public synchronized void start() throws IOException, IllegalStateException {
+        if (server != null) {
+            throw new IllegalStateException("already running");
+        }
+        HttpServer newServer = HttpServer.create(bindAddress, 0);
+        newServer.createContext(STATUS_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleRequest(exchange, STATUS_PATH, false);
+            }
+        });
+        newServer.createContext(FAVICON_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleRequest(exchange, FAVICON_PATH, true);
+            }
+        });
+        newServer.setExecutor(executor);
+        newServer.start();
+        server = newServer;
+    }
+
+    /**
+     * Stop serving requests, and wait up to the given delay for the requests in progress to complete
+     * @param delay the maximum time in seconds to wait for the requests in progress
+     */
+    public synchronized void stop(int delay) {
+        if (server != null) {
+            server.stop(delay);
+            server = null;
+        }
+    }
+
+    /**
+     * @return the bound local address of this gateway, or <code>null</code> if it is not running
+     */
+    public synchronized InetSocketAddress getLocalAddress() {
+        return (server != null ? server.getAddress() : null);
+    }
+
+
+    private void handleRequest(HttpExchange exchange, String path, boolean favicon) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            boolean head = method.equals("HEAD");
+            if (!head && !method.equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            Entry entry;
+            try {
+                entry = entries.get(new Address(exchange.getRequestURI().getPath().substring(path.length())));
+            } catch (URISyntaxException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            byte[] body = (entry != null ? (favicon ? entry.favicon : entry.status) : null);
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String etag = (favicon ? entry.faviconEtag : entry.statusEtag);
+
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", "no-cache");
+            if (matchesEtag(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            headers.set("Content-Type", (favicon ? "image/png" : "application/json; charset=utf-8"));
+            if (head) {
+                headers.set("Content-Length", String.valueOf(body.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Only replaces the entry that the update was based on, so a concurrent update of the same server is not lost
+    private boolean update(Address address, Entry previous, Entry entry) {
+        return (previous == null ? entries.putIfAbsent(address, entry) == null : entries.replace(address, previous, entry));
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String createEtag(byte[] body) {
+        return "\"" + Long.toHexString(ByteUtils.fnv1a(body)) + "\"";
+    }
+
+
+    /**
+     * The prepared response bodies of the latest status of a server
+     */
+    private static class Entry {
+
+        private final PingResponse response;
+        private final byte[] status;
+        private final String statusEtag;
+        private final byte[] favicon;
+        private final String faviconEtag;
+
+        private Entry(Address address, PingResponse response) {
+            this.response = response;
+
+            JsonObject statusObject = new JsonObject();
+            statusObject.addProperty("address", address.toString());
+            statusObject.addProperty("online", response != null);
+            byte[] faviconData = null;
+            if (response != null) {
+                JsonObject versionObject = new JsonObject();
+                if (response.getVersion() != null) {
+                    versionObject.addProperty("name", response.getVersion().getName());
+                    versionObject.addProperty("protocol", response.getVersion().getProtocol());
+                }
+                statusObject.add("version", versionObject);
+
+                JsonObject playersObject = new JsonObject();
+                playersObject.addProperty("max", response.getPlayers().getMax());
+                playersObject.addProperty("online", response.getPlayers().getCount());
+                JsonArray sampleArray = new JsonArray();
+                for (PingResponse.Player player : response.getPlayers().getSample()) {
+                    JsonObject playerObject = new JsonObject();
+                    playerObject.addProperty("name", player.getName());
+                    playerObject.addProperty("id", player.getId().toString());
+                    sampleArray.add(playerObject);
+                }
+                playersObject.add("sample", sampleArray);
+                statusObject.add("players", playersObject);
+
+                statusObject.addProperty("description", response.getDescription().getText());
+
+                String faviconText = response.getFavicon();
+                int markerIndex = (faviconText != null ? faviconText.indexOf(BASE64_MARKER) : -1);
+                if (markerIndex >= 0) {
+                    faviconData = ByteUtils.decodeBase64(faviconText, markerIndex + BASE64_MARKER.length());
+                }
+                if (faviconData != null) {
+                    statusObject.addProperty("favicon", FAVICON_PATH + address);
+                }
+            }
+
+            status = GSON.toJson(statusObject).getBytes(StandardCharsets.UTF_8);
+            statusEtag = createEtag(status);
+            favicon = faviconData;
+            faviconEtag = (faviconData != null ? createEtag(faviconData) : null);
+        }
+
+    }
+
+}
@@ -0,0 +1,602 @@
+package com.deadmandungeons.serverstatus.server;
+
+import com.deadmandungeons.serverstatus.MinecraftServer;
+import com.deadmandungeons.serverstatus.ping.Connection.PacketBuilder;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.query.QueryResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A non-blocking server that answers Server List Ping requests from a {@link MinecraftServer} model,
+ * which can be embedded in a proxy or lobby front, or used as a stand-in server for benchmarking {@link com.deadmandungeons.serverstatus.ping.MinecraftPinger}.
+ * <p>
+ * Status, pong, and both legacy 0xFE formats are answered. Each status is serialized to the bytes of every response format
+ * when it is set, so answering a request only writes the prepared bytes, and a status update atomically replaces them.
+ * A status can be set for each host name that clients connect with, such as for virtual hosts on the same port,
+ * and the {@link #setStatus(MinecraftServer) default status} answers clients of any other host name.
+ * <p>
+ * All connections are handled by a single selector thread.
+ */
+public class StatusResponder {
+
+    private static final int DEFAULT_TIMEOUT = 5000;
+    // The largest valid request is a legacy 1.6 ping with a 255 character host name
+    private static final int MAX_REQUEST_LENGTH = 1024;
+
+    private static final int HANDSHAKE_PACKET_ID = 0x00;
+    private static final int STATUS_PACKET_ID = 0x00;
+    private static final int PING_PACKET_ID = 0x01;
+    private static final int STATUS_STATE = 1;
+
+    private static final int LEGACY_PACKET_ID = 0xFE;
+    private static final int LEGACY_KICK_PACKET_ID = 0xFF;
+    private static final String LEGACY_PING_HOST = "MC|PingHost";
+
+    private static final Gson GSON = new Gson();
+
+    private final InetSocketAddress bindAddress;
+    private final ConcurrentMap<String, Responses> hostResponses = new ConcurrentHashMap<>();
+
+    private int timeout = DEFAULT_TIMEOUT;
+
+    private volatile Responses defaultResponses;
+    private volatile Selector selector;
+    private volatile ServerSocketChannel serverChannel;
+    private volatile Thread thread;
+
+    /**
+     * @param bindAddress the local address to accept connections on, which may have port 0 for an ephemeral port
+     */
+    public StatusResponder(InetSocketAddress bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+
+    /**
+     * @param timeout the time in milliseconds after which an idle connection is closed (5000 by default)
+     * @return this StatusResponder instance
+     */
+    public StatusResponder timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+
+    /**
+     * Set the status that answers clients of any host name that has no status of its own.
+     * The status is serialized immediately, and requests received after this method returns are answered with it.
+     * @param status the default status, or <code>null</code> to close the connections of clients without a host status
+     */
+    public void setStatus(MinecraftServer status) {
+        defaultResponses = (status != null ? new Responses(status) : null);
+    }
+
+    /**
+     * Set the status that answers clients which connect with the given host name
+     * @param host the host name that clients connect with
+     * @param status the status of the host name, or <code>null</code> to remove the status of the host name
+     */
+    public void setStatus(String host, MinecraftServer status) {
+        if (status != null) {
+            hostResponses.put(normalizeHost(host), new Responses(status));
+        } else {
+            hostResponses.remove(normalizeHost(host));
+        }
+    }
+
+
+    /**
+     * Bind to the local address and start answering requests on a new daemon thread
+     * @throws IOException if the local address could not be bound
+     * @throws IllegalStateException if this responder is already running
+     */
+    public synchronized void start() throws IOException, IllegalStateException {
+        if (thread != null) {
+            throw new IllegalStateException("already running");
+        }
+        final Selector newSelector = Selector.open();
+        ServerSocketChannel newServerChannel = ServerSocketChannel.open();
+        try {
+            newServerChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            newServerChannel.bind(bindAddress, 1024);
+            newServerChannel.configureBlocking(false);
+            newServerChannel.register(newSelector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            newServerChannel.close();
+            newSelector.close();
+            throw e;
+        }
+        selector = newSelector;
+        serverChannel = newServerChannel;
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                select(newSelector);
+            }
+        }, "StatusResponder-" + newServerChannel.socket().getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop answering requests and close all connections
+     */
+    public synchronized void stop() {
+        Thread stopped = thread;
+        if (stopped == null) {
+            return;
+        }
+        thread = null;
+        serverChannel = null;
+        selector.wakeup();
+        try {
+            stopped.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return true if this responder is running
+     */
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * @return the bound local address of this responder, or <code>null</code> if it is not running
+     */
+    public InetSocketAddress getLocalAddress() {
+        ServerSocketChannel channel = serverChannel;
+        if (channel == null) {
+            return null;
+        }
+        try {
+            SocketAddress localAddress = channel.getLocalAddress();
+            return (InetSocketAddress) localAddress;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+
+    private void select(Selector selector) {
+        Thread currentThread = Thread.currentThread();
+        long nextExpiry = System.nanoTime() + timeout * 1000000L;
+        try {
+            while (thread == currentThread) {
+                selector.select(Math.max(timeout / 2, 1));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(selector, (ServerSocketChannel) key.channel());
+                        continue;
+                    }
+                    Client client = (Client) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(client);
+                        }
+                    } catch (IOException e) {
+                        client.close();
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now - nextExpiry >= 0) {
+                    closeIdleClients(selector, now);
+                    nextExpiry = now + timeout * 1000000L;
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // The selector failed, so the responder can not continue
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+            // Only reached without stop() if the selector failed
+            if (thread == currentThread) {
+                thread = null;
+                serverChannel = null;
+            }
+        }
+    }
+
+    private void accept(Selector selector, ServerSocketChannel serverChannel) throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Client(channel, key));
+            } catch (IOException e) {
+                channel.close();
+            }
+        }
+    }
+
+    private void closeIdleClients(Selector selector, long now) {
+        long idleNanos = timeout * 1000000L;
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Client && now - ((Client) attachment).lastActive >= idleNanos) {
+                ((Client) attachment).close();
+            }
+        }
+    }
+
+    private void read(Client client) throws IOException {
+        int read = client.channel.read(client.input);
+        if (read < 0) {
+            client.close();
+            return;
+        }
+        client.lastActive = System.nanoTime();
+
+        ByteBuffer input = client.input;
+        input.flip();
+        try {
+            while (input.hasRemaining() && !client.closing) {
+                if (client.state == Client.HANDSHAKE && (input.get(input.position()) & 0xFF) == LEGACY_PACKET_ID) {
+                    if (!handleLegacyRequest(client, input)) {
+                        break;
+                    }
+                    continue;
+                }
+                int start = input.position();
+                int length = readVarInt(input);
+                if (length < 0 || input.remaining() < length) {
+                    // Wait for the rest of the packet
+                    input.position(start);
+                    break;
+                }
+                if (length == 0) {
+                    throw new IOException("invalid packet length");
+                }
+                int end = input.position() + length;
+                handlePacket(client, input, end);
+                input.position(end);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("invalid request", e);
+        } finally {
+            input.compact();
+        }
+        if (!input.hasRemaining() && !client.closing) {
+            throw new IOException("request exceeds " + MAX_REQUEST_LENGTH + " bytes");
+        }
+        if (!client.closing) {
+            write(client);
+        }
+    }
+
+    private void handlePacket(Client client, ByteBuffer input, int end) throws IOException {
+        int packetId = readPacketVarInt(input, end);
+        if (client.state == Client.HANDSHAKE) {
+            if (packetId != HANDSHAKE_PACKET_ID) {
+                throw new IOException("expected handshake packet");
+            }
+            readPacketVarInt(input, end); // protocol version
+            String host = readPacketString(input, end);
+            checkRemaining(input, end, 2);
+            input.getShort(); // port
+            int nextState = readPacketVarInt(input, end);
+            if (nextState != STATUS_STATE) {
+                client.close();
+                return;
+            }
+            client.responses = getResponses(host);
+            client.state = Client.STATUS;
+        } else if (packetId == STATUS_PACKET_ID) {
+            if (client.responses == null) {
+                client.close();
+                return;
+            }
+            client.output.add(ByteBuffer.wrap(client.responses.status));
+        } else if (packetId == PING_PACKET_ID) {
+            // The pong echoes the ping payload, and ends the status exchange
+            checkRemaining(input, end, 8);
+            ByteBuffer pong = ByteBuffer.allocate(10);
+            pong.put((byte) 9).put((byte) PING_PACKET_ID).putLong(input.getLong()).flip();
+            client.output.add(pong);
+            client.closeAfterWrite = true;
+        } else {
+            throw new IOException("unexpected packet " + packetId);
+        }
+    }
+
+    /**
+     * @return false if more bytes are needed to handle the request
+     */
+    private boolean handleLegacyRequest(Client client, ByteBuffer input) {
+        int start = input.position();
+        int available = input.remaining();
+        // Like the vanilla server, a 0xFE that is not followed by anything is a request from before 1.4
+        if (available == 1 || input.get(start + 1) != 0x01) {
+            respondLegacy(client, input, getResponses(null), false);
+            return true;
+        }
+        if (available == 2 || (input.get(start + 2) & 0xFF) != 0xFA) {
+            respondLegacy(client, input, getResponses(null), true);
+            return true;
+        }
+
+        // From 1.6 the request includes the host name: 0xFE 0x01 0xFA, "MC|PingHost", the data length, and the data
+        if (available < 5) {
+            return false;
+        }
+        int channelLength = input.getShort(start + 3) & 0xFFFF;
+        int dataLengthIndex = start + 5 + channelLength * 2;
+        if (available < dataLengthIndex - start + 2) {
+            return false;
+        }
+        int dataLength = input.getShort(dataLengthIndex) & 0xFFFF;
+        if (available < dataLengthIndex - start + 2 + dataLength) {
+            return false;
+        }
+        String host = null;
+        int hostLengthIndex = dataLengthIndex + 3;
+        if (channelLength == LEGACY_PING_HOST.length() && dataLength >= 7) {
+            int hostLength = input.getShort(hostLengthIndex) & 0xFFFF;
+            if (hostLength * 2 + 7 <= dataLength) {
+                char[] hostChars = new char[hostLength];
+                for (int i = 0; i < hostLength; i++) {
+                    hostChars[i] = input.getChar(hostLengthIndex + 2 + i * 2);
+                }
+                host = new String(hostChars);
+            }
+        }
+        respondLegacy(client, input, getResponses(host), true);
+        return true;
+    }
+
+    private void respondLegacy(Client client, ByteBuffer input, Responses responses, boolean legacy47) {
+        // The legacy protocol answers with a kick packet, after which the connection is closed
+        input.position(input.limit());
+        if (responses == null) {
+            client.close();
+            return;
+        }
+        client.output.add(ByteBuffer.wrap(legacy47 ? responses.legacy47 : responses.legacy17));
+        client.closeAfterWrite = true;
+    }
+
+    private void write(Client client) throws IOException {
+        Queue<ByteBuffer> output = client.output;
+        ByteBuffer buffer;
+        while ((buffer = output.peek()) != null) {
+            client.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            output.remove();
+        }
+        if (client.closeAfterWrite) {
+            client.close();
+        } else if (client.key.isValid()) {
+            client.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private Responses getResponses(String host) {
+        Responses responses = null;
+        if (host != null && !hostResponses.isEmpty()) {
+            // Forge and BungeeCord append null delimited data to the host name
+            int nullIndex = host.indexOf('\0');
+            responses = hostResponses.get(normalizeHost(nullIndex >= 0 ? host.substring(0, nullIndex) : host));
+        }
+        return (responses != null ? responses : defaultResponses);
+    }
+
+
+    private static String normalizeHost(String host) {
+        host = host.trim().toLowerCase();
+        return (host.endsWith(".") ? host.substring(0, host.length() - 1) : host);
+    }
+
+    // Returns -1 if the VarInt is incomplete
+    private static int readVarInt(ByteBuffer input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!input.hasRemaining()) {
+                return -1;
+            }
+            byte part = input.get();
+            value |= (part & 0x7F) << shift;
+            if ((part & 0x80) == 0) {
+                if (value > MAX_REQUEST_LENGTH) {
+                    throw new IOException("packet exceeds " + MAX_REQUEST_LENGTH + " bytes");
+                }
+                return value;
+            }
+        }
+        throw new IOException("VarInt is too big");
+    }
+
+    private static int readPacketVarInt(ByteBuffer input, int end) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (input.position() >= end) {
+                throw new IOException("packet ended within a VarInt");
+            }
+            byte part = input.get();
+            value |= (part & 0x7F) << shift;
+            if ((part & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarInt is too big");
+    }
+
+    private static void checkRemaining(ByteBuffer input, int end, int length) throws IOException {
+        if (input.position() + length > end) {
+            throw new IOException("packet ended within a field");
+        }
+    }
+
+    private static String readPacketString(ByteBuffer input, int end) throws IOException {
+        int length = readPacketVarInt(input, end);
+        if (length < 0 || input.position() + length > end) {
+            throw new IOException("invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // The channel is discarded either way
+        }
+    }
+
+
+    /**
+     * The serialized responses of a status in each format
+     */
+    private static class Responses {
+
+        private final byte[] status;
+        private final byte[] legacy47;
+        private final byte[] legacy17;
+
+        private Responses(MinecraftServer server) {
+            int count = getPlayerCount(server.getPlayers());
+            int max = server.getPlayers().getMax();
+            MinecraftServer.Version version = server.getVersion();
+            String versionName = (version != null && version.getName() != null ? version.getName() : "");
+            int protocol = (version != null ? version.getProtocol() : 0);
+            String description = server.getDescription().getText();
+
+            status = serializeStatus(server, versionName, protocol, count);
+            legacy47 = serializeLegacy("\u00A71\0" + protocol + "\0" + versionName + "\0" + description + "\0" + count + "\0" + max);
+            legacy17 = serializeLegacy(description + "\u00A7" + count + "\u00A7" + max);
+        }
+
+        private static byte[] serializeStatus(MinecraftServer server, String versionName, int protocol, int count) {
+            JsonObject versionObject = new JsonObject();
+            versionObject.addProperty("name", versionName);
+            versionObject.addProperty("protocol", protocol);
+
+            JsonObject playersObject = new JsonObject();
+            playersObject.addProperty("max", server.getPlayers().getMax());
+            playersObject.addProperty("online", count);
+            if (server.getPlayers() instanceof PingResponse.PlayersStatus) {
+                List<PingResponse.Player> sample = ((PingResponse.PlayersStatus) server.getPlayers()).getSample();
+                if (!sample.isEmpty()) {
+                    JsonArray sampleArray = new JsonArray();
+                    for (PingResponse.Player player : sample) {
+                        JsonObject playerObject = new JsonObject();
+                        playerObject.addProperty("name", player.getName());
+                        playerObject.addProperty("id", player.getId().toString());
+                        sampleArray.add(playerObject);
+                    }
+                    playersObject.add("sample", sampleArray);
+                }
+            }
+
+            JsonObject responseObject = new JsonObject();
+            responseObject.add("version", versionObject);
+            responseObject.add("players", playersObject);
+            responseObject.addProperty("description", server.getDescription().getText());
+            if (server.getFavicon() != null) {
+                responseObject.addProperty("favicon", server.getFavicon());
+            }
+
+            try {
+                PacketBuilder statusPacket = new PacketBuilder();
+                statusPacket.writeVarInt(STATUS_PACKET_ID);
+                statusPacket.writeVarUTF(GSON.toJson(responseObject));
+                return statusPacket.toByteArray();
+            } catch (IOException e) {
+                // Writing to a byte array can not fail
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static byte[] serializeLegacy(String response) {
+            byte[] chars = response.getBytes(StandardCharsets.UTF_16BE);
+            return ByteBuffer.allocate(3 + chars.length).put((byte) LEGACY_KICK_PACKET_ID).putShort((short) response.length())
+                    .put(chars).array();
+        }
+
+        private static int getPlayerCount(MinecraftServer.Players players) {
+            if (players instanceof PingResponse.PlayersStatus) {
+                return ((PingResponse.PlayersStatus) players).getCount();
+            } else if (players instanceof QueryResponse.PlayersList) {
+                return ((QueryResponse.PlayersList) players).getCount();
+            }
+            return 0;
+        }
+
+    }
+
+    private static class Client {
+
+        private static final int HANDSHAKE = 0;
+        private static final int STATUS = 1;
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_REQUEST_LENGTH);
+        private final Queue<ByteBuffer> output = new ArrayDeque<>(2);
+
+        private int state = HANDSHAKE;
+        private Responses responses;
+        private boolean closeAfterWrite;
+        private boolean closing;
+        private long lastActive = System.nanoTime();
+
+        private Client(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        private void close() {
+            closing = true;
+            closeQuietly(key);
+        }
+
+    }
+
+}
@@ -0,0 +1,362 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Players;
+import com.deadmandungeons.serverstatus.monitor.StatusListener;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.query.QueryResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An index of the server and time that each player was last seen on, which is updated from the sample players of each poll
+ * and from the player lists of queries.
+ * <p>
+ * The players are stored in primitive arrays, where each UUID is two longs, and are found through open addressing tables
+ * of entry indexes keyed by UUID and by case insensitive name. So lookups are O(1) without boxing a UUID key for each player.
+ * The index holds at most the given maximum amount of players, and once full, a player that was not seen recently is
+ * evicted for each new player.
+ * <p>
+ * Query player lists only contain names, so they only update players that were already seen in a sample with their UUID.
+ */
+public class PlayerPresence implements StatusListener {
+
+    private static final int EMPTY = -1;
+    // The amount of players compared to find the least recently seen player to evict
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final int maxPlayers;
+    private final int mask;
+
+    // The entries of the players
+    private final long[] mostSigBits;
+    private final long[] leastSigBits;
+    private final String[] names;
+    private final int[] servers;
+    private final long[] times;
+    private final int[] nextFree;
+
+    // Open addressing tables of entry indexes
+    private final int[] idTable;
+    private final int[] nameTable;
+
+    private final Map<Address, Integer> serverIndexes = new HashMap<>();
+    private final List<Address> serverAddresses = new ArrayList<>();
+
+    private int size;
+    private int freeHead;
+    private int evictionCursor;
+
+    /**
+     * @param maxPlayers the maximum amount of players to index
+     * @throws IllegalArgumentException if maxPlayers is less than 1
+     */
+    public PlayerPresence(int maxPlayers) throws IllegalArgumentException {
+        if (maxPlayers < 1) {
+            throw new IllegalArgumentException("maxPlayers must be at least 1");
+        }
+        this.maxPlayers = maxPlayers;
+        mostSigBits = new long[maxPlayers];
+        leastSigBits = new long[maxPlayers];
+        names = new String[maxPlayers];
+        servers = new int[maxPlayers];
+        times = new long[maxPlayers];
+        nextFree = new int[maxPlayers];
+        for (int i = 0; i < maxPlayers; i++) {
+            nextFree[i] = i + 1;
+        }
+        nextFree[maxPlayers - 1] = EMPTY;
+
+        // Keep the load factor of the tables at or below 0.5 so that probe sequences stay short
+        int tableSize = Integer.highestOneBit(maxPlayers) << 2;
+        mask = tableSize - 1;
+        idTable = new int[tableSize];
+        nameTable = new int[tableSize];
+        Arrays.fill(idTable, EMPTY);
+        Arrays.fill(nameTable, EMPTY);
+    }
+
+
+    @Override
+    public void onStatus(Address address, PingResponse response) {
+        List<PingResponse.Player> sample = response.getPlayers().getSample();
+        if (sample.isEmpty()) {
+            return;
+        }
+        long time = System.currentTimeMillis();
+        synchronized (this) {
+            int server = getServerIndex(address);
+            for (PingResponse.Player player : sample) {
+                UUID id = player.getId();
+                // Servers often list a custom message in the sample as players with the nil UUID
+                if (id.getMostSignificantBits() != 0 || id.getLeastSignificantBits() != 0) {
+                    record(id.getMostSignificantBits(), id.getLeastSignificantBits(), player.getName(), server, time);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onFailure(Address address, IOException cause) {
+    }
+
+    /**
+     * Update the players in the player list of the given query response that were already seen with their UUID
+     * @param address the address of the queried server
+     * @param response the query response of the server
+     */
+    public void onQuery(Address address, QueryResponse response) {
+        Players players = response.getPlayers();
+        if (!(players instanceof QueryResponse.PlayersList)) {
+            return;
+        }
+        long time = System.currentTimeMillis();
+        synchronized (this) {
+            int server = getServerIndex(address);
+            for (String name : ((QueryResponse.PlayersList) players).getList()) {
+                int entry = findName(name);
+                if (entry != EMPTY && time >= times[entry]) {
+                    servers[entry] = server;
+                    times[entry] = time;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param id the UUID of the player
+     * @return where the given player was last seen, or <code>null</code> if the player is not indexed
+     */
+    public synchronized Sighting getLastSeen(UUID id) {
+        int entry = findId(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        return (entry != EMPTY ? createSighting(entry) : null);
+    }
+
+    /**
+     * @param name the case insensitive name of the player
+     * @return where the given player was last seen, or <code>null</code> if the player is not indexed
+     */
+    public synchronized Sighting getLastSeen(String name) {
+        int entry = findName(name);
+        return (entry != EMPTY ? createSighting(entry) : null);
+    }
+
+    /**
+     * @param name the case insensitive name of the player
+     * @return the UUID of the indexed player with the given name, or <code>null</code> if the player is not indexed
+     */
+    public synchronized UUID getId(String name) {
+        int entry = findName(name);
+        return (entry != EMPTY ? new UUID(mostSigBits[entry], leastSigBits[entry]) : null);
+    }
+
+    /**
+     * @return the amount of indexed players
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+
+    private void record(long msb, long lsb, String name, int server, long time) {
+        int entry = findId(msb, lsb);
+        if (entry == EMPTY) {
+            if (size == maxPlayers) {
+                evict();
+            }
+            entry = freeHead;
+            freeHead = nextFree[entry];
+            size++;
+            mostSigBits[entry] = msb;
+            leastSigBits[entry] = lsb;
+            insert(idTable, hashId(msb, lsb), entry);
+        }
+        if (names[entry] != null && names[entry].equalsIgnoreCase(name)) {
+            // Only the capitalization may have changed, which does not change the hash of the name
+            names[entry] = name;
+        } else {
+            removeName(entry);
+            names[entry] = name;
+            putName(entry);
+        }
+        servers[entry] = server;
+        times[entry] = time;
+    }
+
+    private void evict() {
+        int oldest = EMPTY;
+        for (int i = 0; i < EVICTION_SAMPLES; i++) {
+            int entry = evictionCursor;
+            evictionCursor = (evictionCursor + 1) % maxPlayers;
+            if (oldest == EMPTY || times[entry] < times[oldest]) {
+                oldest = entry;
+            }
+        }
+        remove(idTable, hashId(mostSigBits[oldest], leastSigBits[oldest]), oldest);
+        removeName(oldest);
+        names[oldest] = null;
+        nextFree[oldest] = freeHead;
+        freeHead = oldest;
+        size--;
+    }
+
+    private void putName(int entry) {
+        int hash = hashName(names[entry]);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int other = nameTable[slot];
+            if (other == EMPTY) {
+                nameTable[slot] = entry;
+                return;
+            }
+            if (names[other].equalsIgnoreCase(names[entry])) {
+                // The name now belongs to a different player, so the previous player can no longer be found by name
+                nameTable[slot] = entry;
+                names[other] = null;
+                return;
+            }
+        }
+    }
+
+    private void removeName(int entry) {
+        if (names[entry] != null) {
+            remove(nameTable, hashName(names[entry]), entry);
+            names[entry] = null;
+        }
+    }
+
+    private int findId(long msb, long lsb) {
+        for (int slot = hashId(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            int entry = idTable[slot];
+            if (entry == EMPTY || (mostSigBits[entry] == msb && leastSigBits[entry] == lsb)) {
+                return entry;
+            }
+        }
+    }
+
+    private int findName(String name) {
+        for (int slot = hashName(name) & mask; ; slot = (slot + 1) & mask) {
+            int entry = nameTable[slot];
+            if (entry == EMPTY || names[entry].equalsIgnoreCase(name)) {
+                return entry;
+            }
+        }
+    }
+
+    private void insert(int[] table, int hash, int entry) {
+        int slot = hash & mask;
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry;
+    }
+
+    private void remove(int[] table, int hash, int entry) {
+        int slot = hash & mask;
+        while (table[slot] != entry) {
+            slot = (slot + 1) & mask;
+        }
+        // Shift back the following entries of the cluster instead of leaving a tombstone
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int other = table[next];
+            if (other == EMPTY) {
+                break;
+            }
+            int home = (table == idTable ? hashId(mostSigBits[other], leastSigBits[other]) : hashName(names[other])) & mask;
+            // Move the entry if its home slot is not cyclically between the vacated slot and its current slot
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = other;
+                slot = next;
+            }
+        }
+        table[slot] = EMPTY;
+    }
+
+    private int getServerIndex(Address address) {
+        Integer index = serverIndexes.get(address);
+        if (index == null) {
+            index = serverAddresses.size();
+            serverIndexes.put(address, index);
+            serverAddresses.add(address);
+        }
+        return index;
+    }
+
+    private Sighting createSighting(int entry) {
+        return new Sighting(new UUID(mostSigBits[entry], leastSigBits[entry]), names[entry], serverAddresses.get(servers[entry]), times[entry]);
+    }
+
+    private static int hashId(long msb, long lsb) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static int hashName(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(name.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /**
+     * The server and time that a player was last seen on
+     */
+    public static class Sighting {
+
+        private final UUID id;
+        private final String name;
+        private final Address address;
+        private final long time;
+
+        private Sighting(UUID id, String name, Address address, long time) {
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.time = time;
+        }
+
+        /**
+         * @return the UUID of the player
+         */
+        public UUID getId() {
+            return id;
+        }
+
+        /**
+         * @return the last seen name of the player, or <code>null</code> if another player has since taken the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the address of the server that the player was last seen on
+         */
+        public Address getAddress() {
+            return address;
+        }
+
+        /**
+         * @return the time that the player was last seen in milliseconds since the epoch
+         */
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return "Sighting{id: " + id + ", name: " + name + ", address: " + address + ", time: " + time + "}";
+        }
+
+    }
+
+}
@@ -0,0 +1,246 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.monitor.StatusListener;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Estimates the full online roster of each server by merging the sample players of consecutive polls.
+ * <p>
+ * Most servers send a random subset of their online players as the sample, so over repeated polls most online players appear.
+ * The confidence of each player that appeared recently is the likelihood that the samples since the player last appeared
+ * would all have missed the player if it was still online, which is the product of <code>1 - sample / online</code> of each
+ * of those polls. This is not the probability that the player is still online, because it does not account for how likely
+ * players are to leave, but a player that keeps being missed by large samples most likely left. A player is dropped once its
+ * confidence is below the minimum confidence, or once the player has not appeared for longer than the expiry.
+ * The roster is limited to the reported online count by keeping the most confident players,
+ * and is exact whenever a sample contains every online player.
+ * <p>
+ * This allows tracking the players of servers that do not have Query enabled, at the cost of a single status ping per poll.
+ */
+public class RosterEstimator implements StatusListener {
+
+    private static final Comparator<Estimate> MOST_CONFIDENT_FIRST = new Comparator<Estimate>() {
+        @Override
+        public int compare(Estimate e1, Estimate e2) {
+            int compare = Double.compare(e2.confidence, e1.confidence);
+            return (compare != 0 ? compare : Long.compare(e2.lastSeen, e1.lastSeen));
+        }
+    };
+
+    private final ConcurrentMap<Address, Roster> rosters = new ConcurrentHashMap<>();
+    private final long expiry;
+
+    private double minConfidence = 0.05;
+
+    /**
+     * @param expiry the time in milliseconds after which a player that has not appeared in a sample is dropped
+     * @throws IllegalArgumentException if expiry is less than 1
+     */
+    public RosterEstimator(long expiry) throws IllegalArgumentException {
+        if (expiry < 1) {
+            throw new IllegalArgumentException("expiry must be at least 1");
+        }
+        this.expiry = expiry;
+    }
+
+
+    /**
+     * @param minConfidence the confidence below which a player is dropped from the roster (0.05 by default)
+     * @return this RosterEstimator instance
+     * @throws IllegalArgumentException if minConfidence is not between 0 and 1
+     */
+    public RosterEstimator minConfidence(double minConfidence) throws IllegalArgumentException {
+        if (!(minConfidence >= 0 && minConfidence <= 1)) {
+            throw new IllegalArgumentException("minConfidence must be between 0 and 1");
+        }
+        this.minConfidence = minConfidence;
+        return this;
+    }
+
+
+    @Override
+    public void onStatus(Address address, PingResponse response) {
+        onStatus(address, response, System.currentTimeMillis());
+    }
+
+    void onStatus(Address address, PingResponse response, long time) {
+        Roster roster = rosters.get(address);
+        if (roster == null) {
+            Roster newRoster = new Roster();
+            roster = rosters.putIfAbsent(address, newRoster);
+            if (roster == null) {
+                roster = newRoster;
+            }
+        }
+        roster.update(time, response.getPlayers());
+    }
+
+    @Override
+    public void onFailure(Address address, IOException cause) {
+        // The players of an offline server are no longer online
+        Roster roster = rosters.get(address);
+        if (roster != null) {
+            roster.clear();
+        }
+    }
+
+    /**
+     * @param address the address of the server
+     * @return the estimated online players of the given server in descending order of confidence,
+     * which is empty if the server has not been polled
+     */
+    public List<Estimate> getRoster(Address address) {
+        Roster roster = rosters.get(address);
+        return (roster != null ? roster.getEstimates() : Collections.<Estimate>emptyList());
+    }
+
+    /**
+     * @param address the address of the server that should no longer be estimated
+     */
+    public void remove(Address address) {
+        rosters.remove(address);
+    }
+
+
+    private class Roster {
+
+        private final Map<UUID, Estimate> players = new HashMap<>();
+        private List<Estimate> estimates = Collections.emptyList();
+
+        private synchronized void update(long time, PingResponse.PlayersStatus status) {
+            int online = status.getCount();
+            List<PingResponse.Player> sample = status.getSample();
+            if (online <= 0) {
+                clear();
+                return;
+            }
+
+            int sampled = 0;
+            for (PingResponse.Player player : sample) {
+                UUID id = player.getId();
+                // Servers often list a custom message in the sample as players with the nil UUID
+                if (id.getMostSignificantBits() != 0 || id.getLeastSignificantBits() != 0) {
+                    sampled++;
+                }
+            }
+            boolean complete = (sampled >= online);
+            // The probability that an online player was missing from this sample
+            double missProbability = 1 - Math.min(1.0, (double) sampled / online);
+
+            Iterator<Estimate> iterator = players.values().iterator();
+            while (iterator.hasNext()) {
+                Estimate estimate = iterator.next();
+                estimate.confidence *= missProbability;
+                if (complete || estimate.confidence < minConfidence || time - estimate.lastSeen > expiry) {
+                    iterator.remove();
+                }
+            }
+            for (PingResponse.Player player : sample) {
+                UUID id = player.getId();
+                if (id.getMostSignificantBits() != 0 || id.getLeastSignificantBits() != 0) {
+                    Estimate estimate = players.get(id);
+                    if (estimate == null) {
+                        players.put(id, new Estimate(id, player.getName(), time));
+                    } else {
+                        estimate.name = player.getName();
+                        estimate.lastSeen = time;
+                        estimate.confidence = 1;
+                    }
+                }
+            }
+
+            List<Estimate> sorted = new ArrayList<>(players.size());
+            for (Estimate estimate : players.values()) {
+                sorted.add(estimate.copy());
+            }
+            Collections.sort(sorted, MOST_CONFIDENT_FIRST);
+            if (sorted.size() > online) {
+                sorted = sorted.subList(0, online);
+            }
+            estimates = Collections.unmodifiableList(sorted);
+        }
+
+        private synchronized void clear() {
+            players.clear();
+            estimates = Collections.emptyList();
+        }
+
+        private synchronized List<Estimate> getEstimates() {
+            return estimates;
+        }
+
+    }
+
+    /**
+     * A player that is estimated to be online, and the confidence of the estimate
+     */
+    public static class Estimate {
+
+        private final UUID id;
+        private String name;
+        private long lastSeen;
+        private double confidence;
+
+        private Estimate(UUID id, String name, long lastSeen) {
+            this.id = id;
+            this.name = name;
+            this.lastSeen = lastSeen;
+            this.confidence = 1;
+        }
+
+        private Estimate copy() {
+            Estimate copy = new Estimate(id, name, lastSeen);
+            copy.confidence = confidence;
+            return copy;
+        }
+
+        /**
+         * @return the UUID of the player
+         */
+        public UUID getId() {
+            return id;
+        }
+
+        /**
+         * @return the name of the player when it last appeared in a sample
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the time that the player last appeared in a sample in milliseconds since the epoch
+         */
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        /**
+         * @return the likelihood between 0 and 1 that every sample since the player last appeared would have missed the player
+         * if it was still online, which is 1 if the player appeared in the latest sample
+         */
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return "Estimate{id: " + id + ", name: " + name + ", confidence: " + confidence + "}";
+        }
+
+    }
+
+}
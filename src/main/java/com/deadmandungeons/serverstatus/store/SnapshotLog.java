@@ -0,0 +1,392 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer;
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.codec.StatusCodec;
+import com.deadmandungeons.serverstatus.monitor.StatusListener;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of status snapshots that persists the latest status of each server across restarts.
+ * <p>
+ * Snapshots are appended as checksummed records, encoded with the {@link StatusCodec}, to memory-mapped segment files
+ * in the given directory.
+ * When a segment is full, the log continues in a new segment, and once there are more than the
+ * {@link #maxSegments(int) maximum} amount of segments, the log is compacted by writing only the latest snapshot of each server
+ * to a new segment and deleting the older segments.
+ * <p>
+ * {@link #open()} replays the existing segments to rebuild the latest snapshot of each server, so the last known status
+ * is available immediately after a restart. A torn record at the end of a segment, such as after a crash, ends the replay
+ * of that segment. As a {@link StatusListener}, the result of each poll is appended to the log.
+ */
+public class SnapshotLog implements StatusListener, Closeable {
+
+    private static final String SEGMENT_PREFIX = "snapshots-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    private static final int DEFAULT_MAX_SEGMENTS = 4;
+    // The payload length followed by the CRC32 of the payload
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte OFFLINE_RECORD = 0;
+    private static final byte STATUS_RECORD = 1;
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotLog.class.getName());
+    private static final AppendFailureHandler LOGGING_HANDLER = new AppendFailureHandler() {
+        @Override
+        public void onAppendFailure(Address address, Exception cause) {
+            LOGGER.log(Level.WARNING, "Failed to append the snapshot of " + address, cause);
+        }
+    };
+
+    private final Path directory;
+    private final ConcurrentMap<Address, StatusSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Deque<Long> segmentIds = new ArrayDeque<>();
+
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private int maxSegments = DEFAULT_MAX_SEGMENTS;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private boolean compacting;
+    private volatile AppendFailureHandler failureHandler = LOGGING_HANDLER;
+
+    /**
+     * @param directory the directory of the segment files, which is created if it does not exist
+     */
+    public SnapshotLog(Path directory) {
+        this.directory = directory;
+    }
+
+
+    /**
+     * @param segmentSize the size in bytes of each segment file (16 MiB by default)
+     * @return this SnapshotLog instance
+     * @throws IllegalArgumentException if segmentSize is less than 64 KiB
+     */
+    public SnapshotLog segmentSize(int segmentSize) throws IllegalArgumentException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be at least " + MIN_SEGMENT_SIZE);
+        }
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * @param maxSegments the amount of segments after which the log is compacted (4 by default)
+     * @return this SnapshotLog instance
+     * @throws IllegalArgumentException if maxSegments is less than 2
+     */
+    public SnapshotLog maxSegments(int maxSegments) throws IllegalArgumentException {
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("maxSegments must be at least 2");
+        }
+        this.maxSegments = maxSegments;
+        return this;
+    }
+
+    /**
+     * @param failureHandler the handler of the snapshots that failed to be appended as a {@link StatusListener},
+     * which logs them as a warning by default
+     * @return this SnapshotLog instance
+     */
+    public SnapshotLog failureHandler(AppendFailureHandler failureHandler) {
+        this.failureHandler = (failureHandler != null ? failureHandler : LOGGING_HANDLER);
+        return this;
+    }
+
+
+    /**
+     * Replay the existing segments to rebuild the latest snapshot of each server, and start a new segment for appending.
+     * Existing segments are never appended to, so a torn record from a crash can not be followed by new records.
+     * @return this SnapshotLog instance
+     * @throws IOException if an I/O error occurs while reading or creating the segment files
+     * @throws IllegalStateException if this log is already open
+     */
+    public synchronized SnapshotLog open() throws IOException, IllegalStateException {
+        if (channel != null) {
+            throw new IllegalStateException("already open");
+        }
+        Files.createDirectories(directory);
+        List<Long> existingIds = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    existingIds.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment file
+                }
+            }
+        }
+        Collections.sort(existingIds);
+
+        snapshots.clear();
+        segmentIds.clear();
+        for (Long segmentId : existingIds) {
+            replay(getSegmentPath(segmentId));
+            segmentIds.add(segmentId);
+        }
+        if (segmentIds.size() >= maxSegments) {
+            compactSegments();
+        } else {
+            startSegment();
+        }
+        return this;
+    }
+
+    /**
+     * @param address the address of the server
+     * @return the latest snapshot of the given server, or <code>null</code> if no snapshot of the server was recorded
+     */
+    public StatusSnapshot getLatest(Address address) {
+        return snapshots.get(address);
+    }
+
+    /**
+     * @return an unmodifiable view of the latest snapshot of each server
+     */
+    public Map<Address, StatusSnapshot> getSnapshots() {
+        return Collections.unmodifiableMap(snapshots);
+    }
+
+
+    @Override
+    public void onStatus(Address address, PingResponse response) {
+        try {
+            append(address, System.currentTimeMillis(), response);
+        } catch (IOException | IllegalStateException e) {
+            // The poll result is still delivered to the other listeners, and the next poll is appended again
+            failureHandler.onAppendFailure(address, e);
+        }
+    }
+
+    @Override
+    public void onFailure(Address address, IOException cause) {
+        try {
+            append(address, System.currentTimeMillis(), null);
+        } catch (IOException | IllegalStateException e) {
+            // The poll result is still delivered to the other listeners, and the next poll is appended again
+            failureHandler.onAppendFailure(address, e);
+        }
+    }
+
+    /**
+     * Append a snapshot of the given server to the log
+     * @param address the address of the server
+     * @param time the time of the snapshot in milliseconds since the epoch
+     * @param response the status response of the server, or <code>null</code> if the server was offline
+     * @throws IOException if the snapshot is larger than a segment or an I/O error occurs while creating a new segment
+     * @throws IllegalStateException if this log is not open
+     */
+    public synchronized void append(Address address, long time, PingResponse response) throws IOException, IllegalStateException {
+        if (channel == null) {
+            throw new IllegalStateException("not open");
+        }
+        StatusSnapshot snapshot = new StatusSnapshot(address, time, response);
+        write(encode(snapshot));
+        snapshots.put(address, snapshot);
+    }
+
+    /**
+     * Write the latest snapshot of each server to a new segment, and delete all of the older segments
+     * @throws IOException if an I/O error occurs while writing the new segment or deleting the older segments
+     * @throws IllegalStateException if this log is not open
+     */
+    public synchronized void compact() throws IOException, IllegalStateException {
+        if (channel == null) {
+            throw new IllegalStateException("not open");
+        }
+        compactSegments();
+    }
+
+    private void compactSegments() throws IOException {
+        List<Long> oldIds = new ArrayList<>(segmentIds);
+        compacting = true;
+        try {
+            startSegment();
+            for (StatusSnapshot snapshot : snapshots.values()) {
+                write(encode(snapshot));
+            }
+            segment.force();
+        } finally {
+            compacting = false;
+        }
+        // The old segments are only deleted once the compacted snapshots are durable
+        for (Long oldId : oldIds) {
+            Files.deleteIfExists(getSegmentPath(oldId));
+            segmentIds.remove(oldId);
+        }
+    }
+
+    /**
+     * Force the appended snapshots of the current segment to be written to the storage device
+     */
+    public synchronized void flush() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            segment.force();
+            channel.close();
+            channel = null;
+            segment = null;
+        }
+    }
+
+
+    private void write(byte[] payload) throws IOException {
+        if (RECORD_HEADER_SIZE + payload.length > segmentSize) {
+            throw new IOException("snapshot of " + payload.length + " bytes exceeds the segment size");
+        }
+        if (segment.remaining() < RECORD_HEADER_SIZE + payload.length) {
+            if (!compacting && segmentIds.size() >= maxSegments) {
+                compactSegments();
+            }
+            if (segment.remaining() < RECORD_HEADER_SIZE + payload.length) {
+                startSegment();
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        segment.putInt(payload.length);
+        segment.putInt((int) crc.getValue());
+        segment.put(payload);
+    }
+
+    private void startSegment() throws IOException {
+        long segmentId = (segmentIds.isEmpty() ? 0 : segmentIds.getLast() + 1);
+        Path path = getSegmentPath(segmentId);
+        FileChannel newChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer newSegment;
+        try {
+            newSegment = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            newChannel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        if (channel != null) {
+            segment.force();
+            channel.close();
+        }
+        channel = newChannel;
+        segment = newSegment;
+        segmentIds.add(segmentId);
+    }
+
+    private void replay(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel replayChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = replayChannel.map(FileChannel.MapMode.READ_ONLY, 0, replayChannel.size());
+        }
+        CRC32 crc = new CRC32();
+        byte[] payload = new byte[0];
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            // A length of 0 is the unwritten remainder of the segment
+            if (length <= 0 || length > buffer.remaining()) {
+                return;
+            }
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            buffer.get(payload, 0, length);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return;
+            }
+            StatusSnapshot snapshot;
+            try {
+                snapshot = decode(payload, length);
+            } catch (IOException | URISyntaxException | BufferUnderflowException | IllegalArgumentException e) {
+                return;
+            }
+            snapshots.put(snapshot.getAddress(), snapshot);
+        }
+    }
+
+    private Path getSegmentPath(long segmentId) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+
+    private static byte[] encode(StatusSnapshot snapshot) {
+        // The monitored address is recorded because the address of the response may be the SRV target instead
+        byte[] host = snapshot.getAddress().getHost().getBytes(StandardCharsets.UTF_8);
+        PingResponse response = snapshot.getResponse();
+        byte[] server = (response != null ? StatusCodec.encode(response) : new byte[0]);
+        return ByteBuffer.allocate(13 + host.length + server.length).put(response != null ? STATUS_RECORD : OFFLINE_RECORD)
+                .putLong(snapshot.getTime()).putShort((short) snapshot.getAddress().getPort()).putShort((short) host.length).put(host)
+                .put(server).array();
+    }
+
+    private static StatusSnapshot decode(byte[] payload, int length) throws IOException, URISyntaxException {
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 0, length);
+        byte type = buffer.get();
+        long time = buffer.getLong();
+        if (type != OFFLINE_RECORD && type != STATUS_RECORD) {
+            throw new IOException("unknown record type " + type);
+        }
+        int port = buffer.getShort() & 0xFFFF;
+        byte[] host = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(host);
+        Address address = new Address(new String(host, StandardCharsets.UTF_8), port);
+        if (type == OFFLINE_RECORD) {
+            return new StatusSnapshot(address, time, null);
+        }
+        MinecraftServer server = StatusCodec.decode(buffer);
+        if (!(server instanceof PingResponse)) {
+            throw new IOException("status record is not a ping response");
+        }
+        return new StatusSnapshot(address, time, (PingResponse) server);
+    }
+
+
+    /**
+     * Handles the snapshots that failed to be appended when this log is used as a {@link StatusListener},
+     * which can not throw the failure to the monitor
+     */
+    public interface AppendFailureHandler {
+
+        /**
+         * Called from the polling thread when the snapshot of a poll failed to be appended
+         * @param address the monitored address of the server
+         * @param cause the IOException of the failed append, or an IllegalStateException if the log is not open
+         */
+        void onAppendFailure(Address address, Exception cause);
+
+    }
+
+}
@@ -0,0 +1,348 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.monitor.StatusListener;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Network-wide and per-group aggregates of the polled servers, and rankings of the servers by player count and latency,
+ * which are all updated incrementally as each poll is published.
+ * <p>
+ * Each poll only applies the difference from the previous poll of the same server to the {@link Aggregate aggregates}
+ * that the server belongs to, so reading an aggregate costs the same regardless of how many servers are polled.
+ * The rankings are kept sorted as servers are updated, so the top K servers are read in O(K).
+ * <p>
+ * <b>Note:</b> The values of an aggregate are each exact, but they are not read atomically together,
+ * so an aggregate read during a publish may combine values from before and after it.
+ */
+public class StatusAggregates implements StatusListener {
+
+    private static final Comparator<Ranked> HIGHEST_FIRST = new Comparator<Ranked>() {
+        @Override
+        public int compare(Ranked r1, Ranked r2) {
+            int compare = Integer.compare(r2.value, r1.value);
+            return (compare != 0 ? compare : Long.compare(r1.id, r2.id));
+        }
+    };
+    private static final Comparator<Ranked> LOWEST_FIRST = new Comparator<Ranked>() {
+        @Override
+        public int compare(Ranked r1, Ranked r2) {
+            int compare = Integer.compare(r1.value, r2.value);
+            return (compare != 0 ? compare : Long.compare(r1.id, r2.id));
+        }
+    };
+
+    private final Aggregate network = new Aggregate();
+    private final ConcurrentMap<String, Aggregate> groups = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Address, Server> servers = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Ranked> byPlayers = new ConcurrentSkipListSet<>(HIGHEST_FIRST);
+    private final ConcurrentSkipListSet<Ranked> byLatency = new ConcurrentSkipListSet<>(LOWEST_FIRST);
+    private final AtomicLong nextId = new AtomicLong();
+
+
+    @Override
+    public void onStatus(Address address, PingResponse response) {
+        update(address, response.getPlayers().getCount(), response.getLatency());
+    }
+
+    @Override
+    public void onFailure(Address address, IOException cause) {
+        update(address, -1, -1);
+    }
+
+    /**
+     * Add the given server to the given group, and create the group if it does not exist yet
+     * @param group the name of the group
+     * @param address the address of the server
+     */
+    public void addToGroup(String group, Address address) {
+        Aggregate aggregate = groups.get(group);
+        if (aggregate == null) {
+            Aggregate newAggregate = new Aggregate();
+            aggregate = groups.putIfAbsent(group, newAggregate);
+            if (aggregate == null) {
+                aggregate = newAggregate;
+            }
+        }
+        Server server = getServer(address);
+        synchronized (server) {
+            if (server.groups.add(aggregate)) {
+                aggregate.apply(server, 1);
+            }
+        }
+    }
+
+    /**
+     * @param group the name of the group
+     * @param address the address of the server to remove from the group
+     */
+    public void removeFromGroup(String group, Address address) {
+        Aggregate aggregate = groups.get(group);
+        Server server = servers.get(address);
+        if (aggregate == null || server == null) {
+            return;
+        }
+        synchronized (server) {
+            if (server.groups.remove(aggregate)) {
+                aggregate.apply(server, -1);
+            }
+        }
+    }
+
+    /**
+     * Remove the given server from the network, every group, and the rankings
+     * @param address the address of the server
+     */
+    public void remove(Address address) {
+        Server server = servers.remove(address);
+        if (server == null) {
+            return;
+        }
+        synchronized (server) {
+            network.apply(server, -1);
+            for (Aggregate aggregate : server.groups) {
+                aggregate.apply(server, -1);
+            }
+            server.groups.clear();
+            unrank(server);
+            server.removed = true;
+        }
+    }
+
+    /**
+     * @return the aggregate of every polled server
+     */
+    public Aggregate getNetwork() {
+        return network;
+    }
+
+    /**
+     * @param group the name of the group
+     * @return the aggregate of the servers in the given group, or <code>null</code> if the group does not exist
+     */
+    public Aggregate getGroup(String group) {
+        return groups.get(group);
+    }
+
+    /**
+     * @param k the maximum amount of servers to return
+     * @return the online servers with the highest player count in descending order
+     */
+    public List<Ranked> getTopByPlayers(int k) {
+        return top(byPlayers, k);
+    }
+
+    /**
+     * @param k the maximum amount of servers to return
+     * @return the online servers with the lowest latency in ascending order
+     */
+    public List<Ranked> getTopByLatency(int k) {
+        return top(byLatency, k);
+    }
+
+
+    private void update(Address address, int count, int latency) {
+        Server server = getServer(address);
+        synchronized (server) {
+            if (server.removed) {
+                return;
+            }
+            // Apply the difference by removing the previous values and adding the new values
+            network.apply(server, -1);
+            for (Aggregate aggregate : server.groups) {
+                aggregate.apply(server, -1);
+            }
+            unrank(server);
+
+            server.polled = true;
+            server.count = count;
+            server.latency = latency;
+
+            network.apply(server, 1);
+            for (Aggregate aggregate : server.groups) {
+                aggregate.apply(server, 1);
+            }
+            if (count >= 0) {
+                server.playersRank = new Ranked(server, count);
+                server.latencyRank = new Ranked(server, latency);
+                byPlayers.add(server.playersRank);
+                byLatency.add(server.latencyRank);
+            }
+        }
+    }
+
+    private void unrank(Server server) {
+        if (server.playersRank != null) {
+            byPlayers.remove(server.playersRank);
+            byLatency.remove(server.latencyRank);
+            server.playersRank = null;
+            server.latencyRank = null;
+        }
+    }
+
+    private Server getServer(Address address) {
+        Server server = servers.get(address);
+        if (server == null) {
+            Server newServer = new Server(address, nextId.getAndIncrement());
+            server = servers.putIfAbsent(address, newServer);
+            if (server == null) {
+                server = newServer;
+            }
+        }
+        return server;
+    }
+
+    private static List<Ranked> top(ConcurrentSkipListSet<Ranked> ranking, int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        List<Ranked> top = new ArrayList<>(Math.min(k, 64));
+        Iterator<Ranked> iterator = ranking.iterator();
+        while (top.size() < k && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+
+    /**
+     * The incrementally maintained totals of a set of servers
+     */
+    public static class Aggregate {
+
+        private final StripedCounter servers = new StripedCounter();
+        private final StripedCounter onlineServers = new StripedCounter();
+        private final StripedCounter players = new StripedCounter();
+        private final StripedCounter latency = new StripedCounter();
+
+        private Aggregate() {
+        }
+
+        private void apply(Server server, int sign) {
+            if (!server.polled) {
+                return;
+            }
+            servers.add(sign);
+            if (server.count >= 0) {
+                onlineServers.add(sign);
+                players.add(sign * server.count);
+                latency.add(sign * server.latency);
+            }
+        }
+
+        /**
+         * @return the amount of polled servers
+         */
+        public long getServerCount() {
+            return servers.sum();
+        }
+
+        /**
+         * @return the amount of servers whose last poll succeeded
+         */
+        public long getOnlineServerCount() {
+            return onlineServers.sum();
+        }
+
+        /**
+         * @return the total player count of the online servers
+         */
+        public long getPlayerCount() {
+            return players.sum();
+        }
+
+        /**
+         * @return the average player count of the online servers, or 0 if no servers are online
+         */
+        public double getAveragePlayerCount() {
+            long online = getOnlineServerCount();
+            return (online > 0 ? (double) getPlayerCount() / online : 0);
+        }
+
+        /**
+         * @return the average latency in milliseconds of the online servers, or 0 if no servers are online
+         */
+        public double getAverageLatency() {
+            long online = getOnlineServerCount();
+            return (online > 0 ? (double) latency.sum() / online : 0);
+        }
+
+        @Override
+        public String toString() {
+            return "Aggregate{servers: " + getOnlineServerCount() + "/" + getServerCount() + ", players: " + getPlayerCount() +
+                    ", averageLatency: " + getAverageLatency() + "}";
+        }
+
+    }
+
+    /**
+     * A server and the value it is ranked by
+     */
+    public static class Ranked {
+
+        private final Address address;
+        private final long id;
+        private final int value;
+
+        private Ranked(Server server, int value) {
+            this.address = server.address;
+            this.id = server.id;
+            this.value = value;
+        }
+
+        /**
+         * @return the address of the server
+         */
+        public Address getAddress() {
+            return address;
+        }
+
+        /**
+         * @return the player count or latency that the server is ranked by
+         */
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return address + "=" + value;
+        }
+
+    }
+
+    private static class Server {
+
+        private final Address address;
+        // Breaks ties between servers with the same ranked value
+        private final long id;
+        private final Set<Aggregate> groups = new CopyOnWriteArraySet<>();
+
+        private boolean polled;
+        private boolean removed;
+        private int count;
+        private int latency;
+        private Ranked playersRank;
+        private Ranked latencyRank;
+
+        private Server(Address address, long id) {
+            this.address = address;
+            this.id = id;
+        }
+
+    }
+
+}
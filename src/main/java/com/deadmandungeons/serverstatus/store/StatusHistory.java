@@ -0,0 +1,392 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.monitor.StatusListener;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A columnar in-memory time series of the player count, player max and latency of each server.
+ * <p>
+ * The samples of each server are kept in a ring of fixed size blocks, and each block stores its samples
+ * as variable length deltas from the previous sample, so a sample usually takes only 4 to 7 bytes.
+ * Once a server has more than the retained amount of samples, its oldest block of samples is dropped.
+ * Range queries and downsampling decode the blocks sequentially into primitive arrays.
+ * <p>
+ * As a {@link StatusListener}, each successful poll is recorded with the current time, and each failed poll is recorded
+ * as an offline sample where the player count, player max, and latency are all -1.
+ */
+public class StatusHistory implements StatusListener {
+
+    private static final int BLOCK_SAMPLES = 64;
+    private static final int INITIAL_BLOCK_BYTES = BLOCK_SAMPLES * 5;
+    // A zigzag encoded long delta followed by three zigzag encoded int deltas
+    private static final int MAX_SAMPLE_BYTES = 10 + 5 * 3;
+
+    private final ConcurrentMap<Address, Series> series = new ConcurrentHashMap<>();
+    private final int blocksPerSeries;
+
+    /**
+     * @param samplesPerServer the minimum amount of the latest samples to retain for each server
+     * @throws IllegalArgumentException if samplesPerServer is less than 1
+     */
+    public StatusHistory(int samplesPerServer) throws IllegalArgumentException {
+        if (samplesPerServer < 1) {
+            throw new IllegalArgumentException("samplesPerServer must be at least 1");
+        }
+        // One extra block so that a partially filled newest block does not reduce the retained samples
+        blocksPerSeries = (samplesPerServer + BLOCK_SAMPLES - 1) / BLOCK_SAMPLES + 1;
+    }
+
+
+    @Override
+    public void onStatus(Address address, PingResponse response) {
+        record(address, System.currentTimeMillis(), response.getPlayers().getCount(), response.getPlayers().getMax(), response.getLatency());
+    }
+
+    @Override
+    public void onFailure(Address address, IOException cause) {
+        record(address, System.currentTimeMillis(), -1, -1, -1);
+    }
+
+    /**
+     * Record a sample for the given server
+     * @param address the address of the server
+     * @param time the time of the sample in milliseconds since the epoch
+     * @param count the player count, or -1 if the server was offline
+     * @param max the player max, or -1 if the server was offline
+     * @param latency the latency in milliseconds, or -1 if the server was offline
+     */
+    public void record(Address address, long time, int count, int max, int latency) {
+        Series addressSeries = series.get(address);
+        if (addressSeries == null) {
+            Series newSeries = new Series(blocksPerSeries);
+            addressSeries = series.putIfAbsent(address, newSeries);
+            if (addressSeries == null) {
+                addressSeries = newSeries;
+            }
+        }
+        addressSeries.append(time, count, max, latency);
+    }
+
+    /**
+     * @param address the address of the server
+     * @return the amount of samples retained for the given server
+     */
+    public int size(Address address) {
+        Series addressSeries = series.get(address);
+        return (addressSeries != null ? addressSeries.size() : 0);
+    }
+
+    /**
+     * @param address the address of the server
+     * @param from the start of the time range in milliseconds since the epoch (inclusive)
+     * @param to the end of the time range in milliseconds since the epoch (exclusive)
+     * @return the samples of the given server within the time range in chronological order
+     */
+    public Samples query(Address address, long from, long to) {
+        Samples samples = new Samples();
+        Series addressSeries = series.get(address);
+        if (addressSeries != null) {
+            addressSeries.decode(from, to, samples);
+        }
+        return samples;
+    }
+
+    /**
+     * Aggregate the samples of the given server within the time range into buckets of the given duration.
+     * Each bucket has the start time of the bucket, the average player count and latency of the online samples,
+     * and the highest player max. A bucket with only offline samples has a player count, player max and latency of -1,
+     * and buckets without samples are omitted.
+     * @param address the address of the server
+     * @param from the start of the time range in milliseconds since the epoch (inclusive)
+     * @param to the end of the time range in milliseconds since the epoch (exclusive)
+     * @param bucketMillis the duration of each bucket in milliseconds
+     * @return the aggregated samples of the given server in chronological order
+     * @throws IllegalArgumentException if bucketMillis is not positive
+     */
+    public Samples downsample(Address address, long from, long to, long bucketMillis) throws IllegalArgumentException {
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("bucketMillis must be positive");
+        }
+        Samples samples = query(address, from, to);
+        Samples buckets = new Samples();
+
+        int i = 0;
+        while (i < samples.size) {
+            long bucket = from + (samples.times[i] - from) / bucketMillis * bucketMillis;
+            long bucketEnd = bucket + bucketMillis;
+
+            long countSum = 0;
+            long latencySum = 0;
+            int online = 0;
+            int max = -1;
+            for (; i < samples.size && samples.times[i] < bucketEnd; i++) {
+                if (samples.counts[i] >= 0) {
+                    countSum += samples.counts[i];
+                    latencySum += samples.latencies[i];
+                    online++;
+                }
+                max = Math.max(max, samples.maxes[i]);
+            }
+            if (online > 0) {
+                buckets.add(bucket, (int) (countSum / online), max, (int) (latencySum / online));
+            } else {
+                buckets.add(bucket, -1, -1, -1);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * @param address the address of the server whose samples should be removed
+     */
+    public void remove(Address address) {
+        series.remove(address);
+    }
+
+    /**
+     * @return the approximate amount of bytes used by the encoded samples of all servers
+     */
+    public long getEncodedSize() {
+        long bytes = 0;
+        for (Series addressSeries : series.values()) {
+            bytes += addressSeries.getEncodedSize();
+        }
+        return bytes;
+    }
+
+
+    /**
+     * Samples of a server decoded into a primitive array for each column
+     */
+    public static class Samples {
+
+        private long[] times = new long[16];
+        private int[] counts = new int[16];
+        private int[] maxes = new int[16];
+        private int[] latencies = new int[16];
+        private int size;
+
+        private Samples() {
+        }
+
+        private void add(long time, int count, int max, int latency) {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                maxes = Arrays.copyOf(maxes, capacity);
+                latencies = Arrays.copyOf(latencies, capacity);
+            }
+            times[size] = time;
+            counts[size] = count;
+            maxes[size] = max;
+            latencies[size] = latency;
+            size++;
+        }
+
+        /**
+         * @return the amount of samples
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param index the index of the sample
+         * @return the time of the sample in milliseconds since the epoch
+         */
+        public long getTime(int index) {
+            checkIndex(index);
+            return times[index];
+        }
+
+        /**
+         * @param index the index of the sample
+         * @return the player count of the sample, or -1 if the server was offline
+         */
+        public int getCount(int index) {
+            checkIndex(index);
+            return counts[index];
+        }
+
+        /**
+         * @param index the index of the sample
+         * @return the player max of the sample, or -1 if the server was offline
+         */
+        public int getMax(int index) {
+            checkIndex(index);
+            return maxes[index];
+        }
+
+        /**
+         * @param index the index of the sample
+         * @return the latency of the sample in milliseconds, or -1 if the server was offline
+         */
+        public int getLatency(int index) {
+            checkIndex(index);
+            return latencies[index];
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+            }
+        }
+
+    }
+
+    private static class Series {
+
+        private final byte[][] blocks;
+        private final int[] blockBytes;
+        private final int[] blockSamples;
+        private final long[] blockStartTimes;
+        private final long[] blockEndTimes;
+
+        private int newestBlock;
+        private int usedBlocks;
+
+        // The last sample of the newest block which the next sample is encoded relative to
+        private long lastTime;
+        private int lastCount;
+        private int lastMax;
+        private int lastLatency;
+
+        private Series(int blockCount) {
+            blocks = new byte[blockCount][];
+            blockBytes = new int[blockCount];
+            blockSamples = new int[blockCount];
+            blockStartTimes = new long[blockCount];
+            blockEndTimes = new long[blockCount];
+        }
+
+        private synchronized void append(long time, int count, int max, int latency) {
+            if (usedBlocks == 0 || blockSamples[newestBlock] == BLOCK_SAMPLES) {
+                startBlock(time);
+            }
+            int block = newestBlock;
+            byte[] bytes = blocks[block];
+            int position = blockBytes[block];
+            if (position + MAX_SAMPLE_BYTES > bytes.length) {
+                bytes = blocks[block] = Arrays.copyOf(bytes, Math.max(bytes.length * 3 / 2, position + MAX_SAMPLE_BYTES));
+            }
+
+            position = writeVarLong(bytes, position, zigzag(time - lastTime));
+            position = writeVarLong(bytes, position, zigzag(count - lastCount));
+            position = writeVarLong(bytes, position, zigzag(max - lastMax));
+            position = writeVarLong(bytes, position, zigzag(latency - lastLatency));
+
+            blockBytes[block] = position;
+            blockSamples[block]++;
+            blockEndTimes[block] = time;
+            lastTime = time;
+            lastCount = count;
+            lastMax = max;
+            lastLatency = latency;
+        }
+
+        private void startBlock(long time) {
+            if (usedBlocks > 0) {
+                newestBlock = (newestBlock + 1) % blocks.length;
+            }
+            if (usedBlocks < blocks.length) {
+                usedBlocks++;
+            }
+            // The oldest block is reused once the ring is full
+            if (blocks[newestBlock] == null) {
+                blocks[newestBlock] = new byte[INITIAL_BLOCK_BYTES];
+            }
+            blockBytes[newestBlock] = 0;
+            blockSamples[newestBlock] = 0;
+            blockStartTimes[newestBlock] = time;
+            lastTime = time;
+            lastCount = 0;
+            lastMax = 0;
+            lastLatency = 0;
+        }
+
+        private synchronized void decode(long from, long to, Samples samples) {
+            int oldestBlock = (newestBlock - usedBlocks + 1 + blocks.length) % blocks.length;
+            for (int i = 0; i < usedBlocks; i++) {
+                int block = (oldestBlock + i) % blocks.length;
+                if (blockEndTimes[block] < from || blockStartTimes[block] >= to) {
+                    continue;
+                }
+                byte[] bytes = blocks[block];
+                long[] position = {0};
+                long time = blockStartTimes[block];
+                int count = 0;
+                int max = 0;
+                int latency = 0;
+                for (int j = 0; j < blockSamples[block]; j++) {
+                    time += unzigzag(readVarLong(bytes, position));
+                    count += (int) unzigzag(readVarLong(bytes, position));
+                    max += (int) unzigzag(readVarLong(bytes, position));
+                    latency += (int) unzigzag(readVarLong(bytes, position));
+                    if (time >= from && time < to) {
+                        samples.add(time, count, max, latency);
+                    }
+                }
+            }
+        }
+
+        private synchronized int size() {
+            int size = 0;
+            for (int i = 0; i < usedBlocks; i++) {
+                size += blockSamples[(newestBlock - i + blocks.length) % blocks.length];
+            }
+            return size;
+        }
+
+        private synchronized long getEncodedSize() {
+            long bytes = 0;
+            for (byte[] block : blocks) {
+                if (block != null) {
+                    bytes += block.length;
+                }
+            }
+            return bytes;
+        }
+
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private static int writeVarLong(byte[] bytes, int position, long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+            return position;
+        }
+
+        // The position is passed in a single element array so that it can be advanced
+        private static long readVarLong(byte[] bytes, long[] position) {
+            int index = (int) position[0];
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte part = bytes[index++];
+                result |= (long) (part & 0x7F) << shift;
+                if ((part & 0x80) == 0) {
+                    break;
+                }
+            }
+            position[0] = index;
+            return result;
+        }
+
+    }
+
+}
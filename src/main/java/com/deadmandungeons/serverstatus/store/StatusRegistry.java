@@ -0,0 +1,419 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.monitor.StatusListener;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A registry of the latest {@link StatusSnapshot} of each server, where reads never wait for a publish.
+ * <p>
+ * The registry is a persistent hash trie behind a single atomic reference. A publish copies only the path to the changed
+ * entry and then atomically replaces the root, so a read is a single volatile read followed by a walk of immutable nodes,
+ * and {@link #snapshot()} returns a consistent view of the whole registry in constant time which can be iterated
+ * for bulk exports while servers continue to be published.
+ * <p>
+ * As a {@link StatusListener}, the result of each poll is published with the current time.
+ */
+public class StatusRegistry implements StatusListener {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // A bitmap node for each 5 bits of the hash and a collision node below them
+    private static final int MAX_DEPTH = (32 + BITS - 1) / BITS + 1;
+
+    private final AtomicReference<Snapshot> root = new AtomicReference<>(new Snapshot(null, 0));
+
+
+    @Override
+    public void onStatus(Address address, PingResponse response) {
+        publish(new StatusSnapshot(address, System.currentTimeMillis(), response));
+    }
+
+    @Override
+    public void onFailure(Address address, IOException cause) {
+        publish(new StatusSnapshot(address, System.currentTimeMillis(), null));
+    }
+
+    /**
+     * Atomically replace the status of the server of the given snapshot
+     * @param status the latest status of a server
+     * @return the replaced status of the server, or <code>null</code> if the server had no status
+     */
+    public StatusSnapshot publish(StatusSnapshot status) {
+        int hash = hash(status.getAddress());
+        StatusSnapshot[] replaced = new StatusSnapshot[1];
+        while (true) {
+            Snapshot current = root.get();
+            replaced[0] = null;
+            Node node = (current.node != null ? current.node.put(status, hash, 0, replaced) : BitmapNode.of(status, hash, 0));
+            Snapshot updated = new Snapshot(node, current.size + (replaced[0] == null ? 1 : 0));
+            if (root.compareAndSet(current, updated)) {
+                return replaced[0];
+            }
+        }
+    }
+
+    /**
+     * @param address the address of the server to remove
+     * @return the removed status of the server, or <code>null</code> if the server had no status
+     */
+    public StatusSnapshot remove(Address address) {
+        int hash = hash(address);
+        StatusSnapshot[] removed = new StatusSnapshot[1];
+        while (true) {
+            Snapshot current = root.get();
+            if (current.node == null) {
+                return null;
+            }
+            removed[0] = null;
+            Node node = current.node.remove(address, hash, 0, removed);
+            if (node == current.node) {
+                return null;
+            }
+            if (root.compareAndSet(current, new Snapshot(node, current.size - 1))) {
+                return removed[0];
+            }
+        }
+    }
+
+    /**
+     * @param address the address of the server
+     * @return the latest status of the given server, or <code>null</code> if the server has no status
+     */
+    public StatusSnapshot get(Address address) {
+        return root.get().get(address);
+    }
+
+    /**
+     * @return the amount of servers in this registry
+     */
+    public int size() {
+        return root.get().size;
+    }
+
+    /**
+     * @return a consistent view of the whole registry at this moment, which is unaffected by later publishes
+     */
+    public Snapshot snapshot() {
+        return root.get();
+    }
+
+
+    private static int hash(Address address) {
+        int hash = address.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /**
+     * An immutable view of the whole registry at a moment in time
+     */
+    public static class Snapshot implements Iterable<StatusSnapshot> {
+
+        private final Node node;
+        private final int size;
+
+        private Snapshot(Node node, int size) {
+            this.node = node;
+            this.size = size;
+        }
+
+        /**
+         * @param address the address of the server
+         * @return the status of the given server in this view, or <code>null</code> if the server has no status
+         */
+        public StatusSnapshot get(Address address) {
+            return (node != null ? node.get(address, hash(address), 0) : null);
+        }
+
+        /**
+         * @return the amount of servers in this view
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return an iterator over the status of every server in this view in no particular order
+         */
+        @Override
+        public Iterator<StatusSnapshot> iterator() {
+            return new SnapshotIterator(node);
+        }
+
+    }
+
+    private abstract static class Node {
+
+        // Either StatusSnapshot values or child nodes
+        protected final Object[] slots;
+
+        private Node(Object[] slots) {
+            this.slots = slots;
+        }
+
+        abstract StatusSnapshot get(Address address, int hash, int shift);
+
+        abstract Node put(StatusSnapshot status, int hash, int shift, StatusSnapshot[] replaced);
+
+        /**
+         * @return the node without the address, this node if it does not contain the address, or null if the node is empty
+         */
+        abstract Node remove(Address address, int hash, int shift, StatusSnapshot[] removed);
+
+        /**
+         * @return the only value of this node if it has no other values or children, so that the parent can inline it
+         */
+        StatusSnapshot getSingleValue() {
+            return (slots.length == 1 && slots[0] instanceof StatusSnapshot ? (StatusSnapshot) slots[0] : null);
+        }
+
+    }
+
+    private static class BitmapNode extends Node {
+
+        private final int bitmap;
+
+        private BitmapNode(int bitmap, Object[] slots) {
+            super(slots);
+            this.bitmap = bitmap;
+        }
+
+        private static BitmapNode of(StatusSnapshot status, int hash, int shift) {
+            return new BitmapNode(bit(hash, shift), new Object[]{status});
+        }
+
+        @Override
+        StatusSnapshot get(Address address, int hash, int shift) {
+            Node node = this;
+            while (node instanceof BitmapNode) {
+                BitmapNode bitmapNode = (BitmapNode) node;
+                int bit = bit(hash, shift);
+                if ((bitmapNode.bitmap & bit) == 0) {
+                    return null;
+                }
+                Object slot = bitmapNode.slots[bitmapNode.index(bit)];
+                if (slot instanceof StatusSnapshot) {
+                    StatusSnapshot status = (StatusSnapshot) slot;
+                    return (status.getAddress().equals(address) ? status : null);
+                }
+                node = (Node) slot;
+                shift += BITS;
+            }
+            return node.get(address, hash, shift);
+        }
+
+        @Override
+        Node put(StatusSnapshot status, int hash, int shift, StatusSnapshot[] replaced) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = status;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+            Object slot = slots[index];
+            Object newSlot;
+            if (slot instanceof Node) {
+                newSlot = ((Node) slot).put(status, hash, shift + BITS, replaced);
+            } else {
+                StatusSnapshot existing = (StatusSnapshot) slot;
+                if (existing.getAddress().equals(status.getAddress())) {
+                    replaced[0] = existing;
+                    newSlot = status;
+                } else {
+                    newSlot = merge(existing, hash(existing.getAddress()), status, hash, shift + BITS);
+                }
+            }
+            Object[] newSlots = slots.clone();
+            newSlots[index] = newSlot;
+            return new BitmapNode(bitmap, newSlots);
+        }
+
+        @Override
+        Node remove(Address address, int hash, int shift, StatusSnapshot[] removed) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = slots[index];
+            if (slot instanceof Node) {
+                Node child = (Node) slot;
+                Node newChild = child.remove(address, hash, shift + BITS, removed);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild != null) {
+                    StatusSnapshot singleValue = newChild.getSingleValue();
+                    Object[] newSlots = slots.clone();
+                    newSlots[index] = (singleValue != null ? singleValue : newChild);
+                    return new BitmapNode(bitmap, newSlots);
+                }
+            } else {
+                StatusSnapshot existing = (StatusSnapshot) slot;
+                if (!existing.getAddress().equals(address)) {
+                    return this;
+                }
+                removed[0] = existing;
+            }
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, newSlots);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private static Node merge(StatusSnapshot first, int firstHash, StatusSnapshot second, int secondHash, int shift) {
+            if (firstHash == secondHash) {
+                return new CollisionNode(firstHash, new Object[]{first, second});
+            }
+            int firstBit = bit(firstHash, shift);
+            int secondBit = bit(secondHash, shift);
+            if (firstBit == secondBit) {
+                return new BitmapNode(firstBit, new Object[]{merge(first, firstHash, second, secondHash, shift + BITS)});
+            }
+            // Slots are ordered by their bit position, and the highest bit is negative so compare the positions
+            boolean firstIsLower = ((firstHash >>> shift) & MASK) < ((secondHash >>> shift) & MASK);
+            Object[] slots = (firstIsLower ? new Object[]{first, second} : new Object[]{second, first});
+            return new BitmapNode(firstBit | secondBit, slots);
+        }
+
+    }
+
+    /**
+     * A node of the values whose addresses have exactly the same hash
+     */
+    private static class CollisionNode extends Node {
+
+        private final int hash;
+
+        private CollisionNode(int hash, Object[] slots) {
+            super(slots);
+            this.hash = hash;
+        }
+
+        @Override
+        StatusSnapshot get(Address address, int hash, int shift) {
+            int index = indexOf(address);
+            return (index >= 0 ? (StatusSnapshot) slots[index] : null);
+        }
+
+        @Override
+        Node put(StatusSnapshot status, int hash, int shift, StatusSnapshot[] replaced) {
+            if (hash != this.hash) {
+                // The new value only shares the hash prefix, so this node moves down under a new bitmap node
+                return new BitmapNode(BitmapNode.bit(this.hash, shift), new Object[]{this}).put(status, hash, shift, replaced);
+            }
+            int index = indexOf(status.getAddress());
+            Object[] newSlots;
+            if (index >= 0) {
+                replaced[0] = (StatusSnapshot) slots[index];
+                newSlots = slots.clone();
+            } else {
+                index = slots.length;
+                newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, slots.length);
+            }
+            newSlots[index] = status;
+            return new CollisionNode(hash, newSlots);
+        }
+
+        @Override
+        Node remove(Address address, int hash, int shift, StatusSnapshot[] removed) {
+            int index = indexOf(address);
+            if (index < 0) {
+                return this;
+            }
+            removed[0] = (StatusSnapshot) slots[index];
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new CollisionNode(hash, newSlots);
+        }
+
+        private int indexOf(Address address) {
+            for (int i = 0; i < slots.length; i++) {
+                if (((StatusSnapshot) slots[i]).getAddress().equals(address)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+    }
+
+    private static class SnapshotIterator implements Iterator<StatusSnapshot> {
+
+        private final Object[][] stack = new Object[MAX_DEPTH][];
+        private final int[] indexes = new int[MAX_DEPTH];
+        private int depth = -1;
+        private StatusSnapshot next;
+
+        private SnapshotIterator(Node root) {
+            if (root != null) {
+                stack[++depth] = root.slots;
+                advance();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public StatusSnapshot next() {
+            StatusSnapshot current = next;
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            advance();
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("snapshots are immutable");
+        }
+
+        private void advance() {
+            while (depth >= 0) {
+                Object[] slots = stack[depth];
+                if (indexes[depth] == slots.length) {
+                    indexes[depth--] = 0;
+                    continue;
+                }
+                Object slot = slots[indexes[depth]++];
+                if (slot instanceof StatusSnapshot) {
+                    next = (StatusSnapshot) slot;
+                    return;
+                }
+                stack[++depth] = ((Node) slot).slots;
+            }
+            next = null;
+        }
+
+    }
+
+}
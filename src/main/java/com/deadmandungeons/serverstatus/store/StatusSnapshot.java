@@ -0,0 +1,59 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+
+/**
+ * The recorded status of a server at a point in time
+ */
+public class StatusSnapshot {
+
+    private final Address address;
+    private final long time;
+    private final PingResponse response;
+
+    /**
+     * @param address the address of the server
+     * @param time the time of the snapshot in milliseconds since the epoch
+     * @param response the status response of the server, or <code>null</code> if the server was offline
+     */
+    public StatusSnapshot(Address address, long time, PingResponse response) {
+        this.address = address;
+        this.time = time;
+        this.response = response;
+    }
+
+    /**
+     * @return the address of the server
+     */
+    public Address getAddress() {
+        return address;
+    }
+
+    /**
+     * @return the time of this snapshot in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the status response of the server, or <code>null</code> if the server was offline
+     */
+    public PingResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * @return true if the server was online at the time of this snapshot
+     */
+    public boolean isOnline() {
+        return response != null;
+    }
+
+    @Override
+    public String toString() {
+        return "StatusSnapshot{address: " + getAddress() + ", time: " + getTime() + ", response: " + getResponse() + "}";
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.deadmandungeons.serverstatus.store;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that spreads its additions over padded stripes selected by the adding thread, so that threads which frequently
+ * add to the same counter rarely contend on the same cache line. Reading the counter sums every stripe.
+ */
+class StripedCounter {
+
+    private static final int STRIPES = stripeCount();
+    // Each stripe is padded to its own 64 byte cache line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * @param delta the amount to add, which may be negative
+     */
+    void add(long delta) {
+        long id = Thread.currentThread().getId();
+        int stripe = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+        cells.getAndAdd(stripe * PADDING, delta);
+    }
+
+    /**
+     * @return the sum of every stripe, which is exact once concurrent additions have completed
+     */
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private static int stripeCount() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() * 2) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveTimeoutsTest {
+
+    private Address address;
+
+    @Before
+    public void createAddress() throws Exception {
+        address = new Address("localhost", 25565);
+    }
+
+    @Test
+    public void testCeilingUntilEnoughSamples() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts().bounds(10, 6000);
+        assertEquals(6000, timeouts.getTimeout(address));
+
+        for (int i = 0; i < 3; i++) {
+            timeouts.onSuccess(address, 100);
+            assertEquals(6000, timeouts.getTimeout(address));
+        }
+        timeouts.onSuccess(address, 100);
+        // Without variance the timeout is the mean times the multiplier
+        assertEquals(200, timeouts.getTimeout(address));
+
+        timeouts.remove(address);
+        assertEquals(6000, timeouts.getTimeout(address));
+    }
+
+    @Test
+    public void testMovingAverage() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts().bounds(10, 6000).multiplier(1);
+        for (int i = 0; i < 4; i++) {
+            timeouts.onSuccess(address, 100);
+        }
+        timeouts.onSuccess(address, 200);
+
+        // The new sample moves the mean by 1/8 of its difference, and adds to the variance
+        double mean = 100 + 0.125 * 100;
+        double variance = 0.875 * (0.125 * 100 * 100);
+        assertEquals((int) (mean + 2.33 * Math.sqrt(variance)), timeouts.getTimeout(address));
+    }
+
+    @Test
+    public void testTimeoutBackoff() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts().bounds(10, 1000);
+        for (int i = 0; i < 4; i++) {
+            timeouts.onSuccess(address, 100);
+        }
+        timeouts.onFailure(address, new ConnectException("Connection refused"));
+        assertEquals(200, timeouts.getTimeout(address));
+
+        timeouts.onFailure(address, new SocketTimeoutException("Read timed out"));
+        assertEquals(400, timeouts.getTimeout(address));
+        timeouts.onFailure(address, new SocketTimeoutException("Read timed out"));
+        assertEquals(800, timeouts.getTimeout(address));
+        timeouts.onFailure(address, new SocketTimeoutException("Read timed out"));
+        assertEquals(1000, timeouts.getTimeout(address));
+
+        timeouts.onSuccess(address, 100);
+        assertEquals(200, timeouts.getTimeout(address));
+    }
+
+    @Test
+    public void testFloor() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts().bounds(250, 1000);
+        for (int i = 0; i < 4; i++) {
+            timeouts.onSuccess(address, 10);
+        }
+        assertEquals(250, timeouts.getTimeout(address));
+    }
+
+    @Test
+    public void testMaxServers() throws Exception {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts().bounds(10, 6000).maxServers(1);
+        Address other = new Address("localhost", 25566);
+        for (int i = 0; i < 4; i++) {
+            timeouts.onSuccess(address, 100);
+            timeouts.onSuccess(other, 100);
+        }
+        assertEquals(200, timeouts.getTimeout(address));
+        assertEquals(6000, timeouts.getTimeout(other));
+
+        // A removed server makes room for another
+        timeouts.remove(address);
+        for (int i = 0; i < 4; i++) {
+            timeouts.onSuccess(other, 100);
+        }
+        assertEquals(200, timeouts.getTimeout(other));
+    }
+
+}
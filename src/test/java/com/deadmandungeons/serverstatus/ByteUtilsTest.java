@@ -0,0 +1,30 @@
+package com.deadmandungeons.serverstatus;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ByteUtilsTest {
+
+    @Test
+    public void testParseUuid() {
+        UUID id = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+        assertEquals(id, ByteUtils.parseUuid("069a79f4-44e9-4726-a5be-fca90e38aaf5"));
+        assertEquals(id, ByteUtils.parseUuid("069A79F444E94726A5BEFCA90E38AAF5"));
+        assertEquals(new UUID(-1, -1), ByteUtils.parseUuid("ffffffff-ffff-ffff-ffff-ffffffffffff"));
+    }
+
+    @Test
+    public void testParseInvalidUuid() {
+        assertNull(ByteUtils.parseUuid(""));
+        assertNull(ByteUtils.parseUuid("069a79f4-44e9-4726-a5be-fca90e38aaf"));
+        assertNull(ByteUtils.parseUuid("069a79f4_44e9-4726-a5be-fca90e38aaf5"));
+        assertNull(ByteUtils.parseUuid("069a79f444e94726a5befca90e38aafg"));
+        assertNull(ByteUtils.parseUuid("069a79f4-44e9-4726-a5be-fca90e38aa\u00E9f"));
+    }
+
+}
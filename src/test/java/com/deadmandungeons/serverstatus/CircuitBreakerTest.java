@@ -0,0 +1,154 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testCircuitOpensAndCloses() throws Exception {
+        Address address = new Address("localhost", 25565);
+        CircuitBreaker breaker = new CircuitBreaker().failureThreshold(2).coolDown(50, TimeUnit.MILLISECONDS);
+        final AtomicInteger calls = new AtomicInteger();
+        final ConnectException failure = new ConnectException("Connection refused");
+        Callable<String> failing = new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                calls.incrementAndGet();
+                throw failure;
+            }
+        };
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                breaker.execute(address, failing);
+                fail("expected the request to fail");
+            } catch (IOException e) {
+                assertSame(failure, e);
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(address));
+
+        try {
+            breaker.execute(address, failing);
+            fail("expected the open circuit to fail fast");
+        } catch (CircuitBreaker.CircuitOpenException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(2, calls.get());
+
+        Thread.sleep(60);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(address));
+        String result = breaker.execute(address, new Callable<String>() {
+            @Override
+            public String call() {
+                return "status";
+            }
+        });
+        assertEquals("status", result);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(address));
+    }
+
+    @Test
+    public void testIdleCircuitsAreEvicted() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker().failureThreshold(2).idleExpiry(50, TimeUnit.MILLISECONDS);
+        Callable<String> failing = new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                throw new ConnectException("Connection refused");
+            }
+        };
+
+        Address idleAddress = new Address("idle.example.com");
+        execute(breaker, idleAddress, failing);
+        execute(breaker, idleAddress, failing);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(idleAddress));
+        assertEquals(1, breaker.size());
+
+        // The next server without a circuit that fails after the idle expiry evicts the circuit of the idle server
+        Thread.sleep(60);
+        Address failingAddress = new Address("failing.example.com");
+        execute(breaker, failingAddress, failing);
+        assertEquals(1, breaker.size());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(idleAddress));
+
+        breaker.reset(failingAddress);
+        assertEquals(0, breaker.size());
+    }
+
+    @Test
+    public void testSuccessClearsCircuitCreatedDuringRequest() throws Exception {
+        final Address address = new Address("localhost", 25565);
+        final CircuitBreaker breaker = new CircuitBreaker().failureThreshold(3);
+        final Callable<String> failing = new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                throw new ConnectException("Connection refused");
+            }
+        };
+
+        // The request starts without a circuit, and other requests fail while it is in flight
+        breaker.execute(address, new Callable<String>() {
+            @Override
+            public String call() {
+                execute(breaker, address, failing);
+                execute(breaker, address, failing);
+                assertEquals(1, breaker.size());
+                return "status";
+            }
+        });
+        assertEquals(0, breaker.size());
+
+        // So only consecutive failures are counted
+        execute(breaker, address, failing);
+        execute(breaker, address, failing);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(address));
+        execute(breaker, address, failing);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(address));
+    }
+
+    @Test
+    public void testTrialFailureAfterReset() throws Exception {
+        final Address address = new Address("localhost", 25565);
+        final CircuitBreaker breaker = new CircuitBreaker().failureThreshold(1).coolDown(50, TimeUnit.MILLISECONDS);
+        execute(breaker, address, new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                throw new ConnectException("Connection refused");
+            }
+        });
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(address));
+
+        // The circuit of the trial is reset while the trial is in flight, so its failure opens a new circuit
+        Thread.sleep(60);
+        execute(breaker, address, new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                breaker.reset(address);
+                throw new ConnectException("Connection refused");
+            }
+        });
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(address));
+        assertEquals(1, breaker.size());
+    }
+
+    private static void execute(CircuitBreaker breaker, Address address, Callable<String> request) {
+        try {
+            breaker.execute(address, request);
+            fail("expected the request to fail");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+}
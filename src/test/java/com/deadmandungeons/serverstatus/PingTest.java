@@ -2,6 +2,7 @@ package com.deadmandungeons.serverstatus;
 
 import com.deadmandungeons.serverstatus.MinecraftServer.Address;
 import com.deadmandungeons.serverstatus.ping.MinecraftPinger;
+import com.deadmandungeons.serverstatus.ping.PingProtocol;
 import com.deadmandungeons.serverstatus.ping.Pinger;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -149,21 +150,9 @@ public class PingTest {
         }
 
         private Pinger createPinger(InetServerAddress address) {
-            MinecraftPinger pinger = new MinecraftPinger(address, PING_TIMEOUT);
-            if (protocol == PingProtocol.LEGACY_47) {
-                return pinger.legacy47();
-            } else if (protocol == PingProtocol.LEGACY_17) {
-                return pinger.legacy17();
-            }
-            return pinger;
+            return new MinecraftPinger(address, PING_TIMEOUT).protocol(protocol);
         }
 
     }
 
-    private enum PingProtocol {
-        CURRENT,
-        LEGACY_47,
-        LEGACY_17,
-    }
-
 }
@@ -0,0 +1,114 @@
+package com.deadmandungeons.serverstatus;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestCoalescerTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    public void testConcurrentRequestsShareResult() throws Exception {
+        final RequestCoalescer<String, Object> coalescer = new RequestCoalescer<>();
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch arrived = new CountDownLatch(CALLERS - 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(CALLERS);
+
+        final Callable<Object> request = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                executions.incrementAndGet();
+                started.countDown();
+                release.await();
+                return new Object();
+            }
+        };
+
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            final int index = i;
+            callers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        if (index > 0) {
+                            arrived.countDown();
+                        }
+                        results.set(index, coalescer.execute("server", request));
+                    } catch (IOException e) {
+                        results.set(index, e);
+                    }
+                }
+            });
+        }
+
+        try {
+            // The first caller executes the request, and the others arrive while it is in flight
+            callers.get(0).start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (Thread caller : callers.subList(1, CALLERS)) {
+                caller.start();
+            }
+            assertTrue(arrived.await(5, TimeUnit.SECONDS));
+            // Each of the others waits for the result once it has joined the request in flight
+            for (Thread caller : callers.subList(1, CALLERS)) {
+                while (caller.getState() != Thread.State.WAITING) {
+                    assertTrue(caller.isAlive());
+                    Thread.yield();
+                }
+            }
+            release.countDown();
+
+            for (Thread caller : callers) {
+                caller.join(5000);
+            }
+            for (int i = 0; i < CALLERS; i++) {
+                assertSame(results.get(0), results.get(i));
+            }
+            assertEquals(1, executions.get());
+            assertEquals(0, coalescer.getInFlightCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testFailureIsNotRemembered() throws Exception {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        try {
+            coalescer.execute("server", new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new IOException("unreachable");
+                }
+            });
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertEquals("unreachable", e.getMessage());
+        }
+
+        String result = coalescer.execute("server", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "online";
+            }
+        });
+        assertEquals("online", result);
+    }
+
+}
@@ -0,0 +1,195 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.MinecraftPinger;
+import com.deadmandungeons.serverstatus.ping.MinecraftPinger.InvalidServerResponse;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryPolicyTest {
+
+    private Address address;
+
+    @Before
+    public void createAddress() throws Exception {
+        address = new Address("localhost", 25565);
+    }
+
+
+    @Test
+    public void testRetryableFailureIsRetried() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        String result = new RetryPolicy().maxAttempts(3).backoff(1, 1).execute(address, new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                if (attempts.incrementAndGet() < 3) {
+                    throw new ConnectException("Connection reset");
+                }
+                return "status";
+            }
+        });
+
+        assertEquals("status", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testFatalFailureIsNotRetried() throws Exception {
+        final IOException invalid = new UnknownHostException("invalid.host");
+        assertFalse(new RetryPolicy().isRetryable(invalid));
+
+        final AtomicInteger attempts = new AtomicInteger();
+        try {
+            new RetryPolicy().maxAttempts(3).backoff(1, 1).execute(address, new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    attempts.incrementAndGet();
+                    throw invalid;
+                }
+            });
+            fail("expected the fatal failure to be thrown");
+        } catch (IOException e) {
+            assertEquals(invalid, e);
+        }
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testHedgedAttemptWinsOverSlowAttempt() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicInteger attempts = new AtomicInteger();
+            RetryPolicy policy = new RetryPolicy().hedged(executor);
+
+            String result = policy.execute(address, new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    if (attempts.incrementAndGet() == 1) {
+                        release.await();
+                        return "slow";
+                    }
+                    return "hedged";
+                }
+            });
+            release.countDown();
+
+            assertEquals("hedged", result);
+            assertEquals(2, attempts.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHedgeDelayIsPerServer() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            RetryPolicy policy = new RetryPolicy().hedged(executor);
+            Address slowAddress = new Address("slow.example.com", 25565);
+            Callable<String> slowRequest = new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    Thread.sleep(20);
+                    return "status";
+                }
+            };
+            Callable<String> fastRequest = new Callable<String>() {
+                @Override
+                public String call() {
+                    return "status";
+                }
+            };
+            for (int i = 0; i < 16; i++) {
+                policy.execute(slowAddress, slowRequest);
+                policy.execute(address, fastRequest);
+            }
+
+            // The slow server is only hedged when it is slower than its own recent attempts
+            assertTrue(policy.getHedgeDelay(slowAddress) >= 20);
+            assertTrue(policy.getHedgeDelay(address) < 20);
+
+            policy.remove(slowAddress);
+            assertEquals(policy.getHedgeDelay(new Address("unknown.example.com")), policy.getHedgeDelay(slowAddress));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidServerResponseIsNotRetried() throws Exception {
+        InvalidServer server = new InvalidServer();
+        server.start();
+        try {
+            final MinecraftPinger pinger = new MinecraftPinger(InetServerAddress.resolve("127.0.0.1", server.socket.getLocalPort()), 1000);
+            try {
+                new RetryPolicy().maxAttempts(3).backoff(1, 1).execute(address, new Callable<PingResponse>() {
+                    @Override
+                    public PingResponse call() throws IOException {
+                        return pinger.legacy47().pingServerStatus();
+                    }
+                });
+                fail("expected the invalid response to be thrown");
+            } catch (InvalidServerResponse e) {
+                assertFalse(new RetryPolicy().isRetryable(e));
+            }
+            assertEquals(1, server.connections.get());
+        } finally {
+            server.socket.close();
+            server.join();
+        }
+    }
+
+
+    /**
+     * A server that answers every legacy status request with a response that is not in the legacy format
+     */
+    private static class InvalidServer extends Thread {
+
+        private final ServerSocket socket;
+        private final AtomicInteger connections = new AtomicInteger();
+
+        private InvalidServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        }
+
+        @Override
+        public void run() {
+            while (!socket.isClosed()) {
+                try (Socket client = socket.accept()) {
+                    connections.incrementAndGet();
+                    String response = "invalid";
+                    DataOutputStream output = new DataOutputStream(client.getOutputStream());
+                    output.writeByte(0xFF);
+                    output.writeShort(response.length());
+                    output.write(response.getBytes(StandardCharsets.UTF_16BE));
+                    output.flush();
+                } catch (IOException e) {
+                    // The server socket was closed
+                }
+            }
+        }
+
+    }
+
+}
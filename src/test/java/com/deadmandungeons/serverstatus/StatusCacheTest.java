@@ -0,0 +1,214 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Players;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StatusCacheTest {
+
+    @Test
+    public void testExpiry() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        Address address = new Address("localhost");
+
+        StatusCache<MinecraftServer> cache = new StatusCache<>(loader).expireAfter(1, TimeUnit.HOURS);
+        MinecraftServer first = cache.get(address);
+        assertSame(first, cache.get(address));
+        assertSame(first, cache.getIfPresent(address));
+        assertEquals(1, loader.loads.get());
+
+        cache = new StatusCache<>(loader).expireAfter(50, TimeUnit.MILLISECONDS);
+        first = cache.get(address);
+        Thread.sleep(100);
+        assertNull(cache.getIfPresent(address));
+        assertEquals(1, cache.size());
+        MinecraftServer second = cache.get(address);
+        assertEquals(3, loader.loads.get());
+        assertEquals(first.getPlayers().getMax() + 1, second.getPlayers().getMax());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        StatusCache<MinecraftServer> cache = new StatusCache<>(new CountingLoader()).maximumSize(2);
+        Address first = new Address("first.example.com");
+        Address second = new Address("second.example.com");
+        Address third = new Address("third.example.com");
+
+        cache.get(first);
+        cache.get(second);
+        cache.get(first);
+        cache.get(third);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.getIfPresent(first));
+        assertNull(cache.getIfPresent(second));
+        assertNotNull(cache.getIfPresent(third));
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        ManualExecutor executor = new ManualExecutor();
+        StatusCache<MinecraftServer> cache = new StatusCache<>(loader).expireAfter(50, TimeUnit.MILLISECONDS)
+                .staleWhileRevalidate(1, TimeUnit.HOURS, executor).refreshBackoff(1, TimeUnit.HOURS);
+        Address address = new Address("localhost");
+
+        MinecraftServer first = cache.get(address);
+        Thread.sleep(100);
+        // The stale response is served while a single refresh is pending
+        assertSame(first, cache.get(address));
+        assertSame(first, cache.get(address));
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(2, loader.loads.get());
+        MinecraftServer second = cache.get(address);
+        assertEquals(first.getPlayers().getMax() + 1, second.getPlayers().getMax());
+
+        // A failed refresh is not retried on every read
+        loader.failing = true;
+        Thread.sleep(100);
+        assertSame(second, cache.get(address));
+        executor.runAll();
+        assertEquals(3, loader.loads.get());
+        assertSame(second, cache.get(address));
+        assertSame(second, cache.get(address));
+        assertEquals(0, executor.tasks.size());
+    }
+
+    @Test
+    public void testRefreshAfterBackoff() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        ManualExecutor executor = new ManualExecutor();
+        StatusCache<MinecraftServer> cache = new StatusCache<>(loader).expireAfter(50, TimeUnit.MILLISECONDS)
+                .staleWhileRevalidate(1, TimeUnit.HOURS, executor).refreshBackoff(50, TimeUnit.MILLISECONDS);
+        Address address = new Address("localhost");
+
+        MinecraftServer first = cache.get(address);
+        loader.failing = true;
+        Thread.sleep(100);
+        assertSame(first, cache.get(address));
+        executor.runAll();
+
+        Thread.sleep(100);
+        loader.failing = false;
+        assertSame(first, cache.get(address));
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(3, loader.loads.get());
+    }
+
+    @Test
+    public void testInvalidationDuringLoad() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StatusCache<MinecraftServer> cache = new StatusCache<>(new StatusCache.Loader<MinecraftServer>() {
+            @Override
+            public MinecraftServer load(Address address) throws IOException {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return new MinecraftServer(address, new Description("A Minecraft Server"), new Players(1), new Version("1.12.2", 340));
+            }
+        });
+        final Address address = new Address("localhost");
+        final AtomicReference<MinecraftServer> result = new AtomicReference<>();
+
+        Thread loader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    result.set(cache.get(address));
+                } catch (IOException e) {
+                    // The result stays null
+                }
+            }
+        };
+        loader.start();
+        try {
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            cache.invalidate(address);
+        } finally {
+            release.countDown();
+        }
+        loader.join(5000);
+
+        // The load still returns its response, but does not undo the invalidation
+        assertNotNull(result.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidationDuringRefresh() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        ManualExecutor executor = new ManualExecutor();
+        StatusCache<MinecraftServer> cache = new StatusCache<>(loader).expireAfter(50, TimeUnit.MILLISECONDS)
+                .staleWhileRevalidate(1, TimeUnit.HOURS, executor);
+        Address address = new Address("localhost");
+
+        cache.get(address);
+        Thread.sleep(100);
+        cache.get(address);
+        cache.invalidateAll();
+        executor.runAll();
+        assertEquals(2, loader.loads.get());
+        assertEquals(0, cache.size());
+    }
+
+
+    private static class CountingLoader implements StatusCache.Loader<MinecraftServer> {
+
+        private final AtomicInteger loads = new AtomicInteger();
+        private volatile boolean failing;
+
+        @Override
+        public MinecraftServer load(Address address) throws IOException {
+            int load = loads.incrementAndGet();
+            if (failing) {
+                throw new ConnectException("Connection refused");
+            }
+            return new MinecraftServer(address, new Description("A Minecraft Server"), new Players(load), new Version("1.12.2", 340));
+        }
+
+    }
+
+    private static class ManualExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        private void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class StatusFingerprintTest {
+
+    private static final PingResponse.Player NOTCH = new PingResponse.Player(new UUID(1, 2), "Notch");
+
+    private Address address;
+    private PingResponse response;
+
+    @Before
+    public void createResponse() throws Exception {
+        address = new Address("localhost");
+        response = createResponse(new PingResponse.PlayersStatus(100, 1, Collections.singletonList(NOTCH)),
+                new Version("1.12.2", 340), "A Minecraft Server", "data:image/png;base64,AAEC");
+    }
+
+
+    @Test
+    public void testEqualResponsesHaveEqualFingerprints() {
+        PingResponse copy = createResponse(new PingResponse.PlayersStatus(100, 1, Collections.singletonList(NOTCH)),
+                new Version(new String("1.12.2"), 340), new String("A Minecraft Server"), "data:image/png;base64,AAEC");
+
+        StatusFingerprint fingerprint = StatusFingerprint.of(response);
+        assertEquals(fingerprint, StatusFingerprint.of(copy));
+        assertEquals(fingerprint.hashCode(), StatusFingerprint.of(copy).hashCode());
+        assertEquals(1, fingerprint.getPlayerCount());
+        assertEquals(100, fingerprint.getPlayerMax());
+        // The fingerprint is only computed once per server
+        assertSame(response.getFingerprint(), response.getFingerprint());
+    }
+
+    @Test
+    public void testEachFieldChangesOnlyItsHash() {
+        StatusFingerprint fingerprint = response.getFingerprint();
+
+        StatusFingerprint players = createResponse(new PingResponse.PlayersStatus(100, 1,
+                Collections.singletonList(new PingResponse.Player(new UUID(1, 3), "Notch"))),
+                new Version("1.12.2", 340), "A Minecraft Server", "data:image/png;base64,AAEC").getFingerprint();
+        assertNotEquals(fingerprint.getPlayersHash(), players.getPlayersHash());
+        assertEquals(fingerprint.getVersionHash(), players.getVersionHash());
+        assertEquals(fingerprint.getDescriptionHash(), players.getDescriptionHash());
+        assertEquals(fingerprint.getFaviconHash(), players.getFaviconHash());
+
+        StatusFingerprint version = createResponse(response.getPlayers(), new Version("1.12.2", 335),
+                "A Minecraft Server", "data:image/png;base64,AAEC").getFingerprint();
+        assertNotEquals(fingerprint.getVersionHash(), version.getVersionHash());
+        assertEquals(fingerprint.getPlayersHash(), version.getPlayersHash());
+        assertEquals(fingerprint.getDescriptionHash(), version.getDescriptionHash());
+
+        StatusFingerprint description = createResponse(response.getPlayers(), new Version("1.12.2", 340),
+                "Maintenance", "data:image/png;base64,AAEC").getFingerprint();
+        assertNotEquals(fingerprint.getDescriptionHash(), description.getDescriptionHash());
+        assertEquals(fingerprint.getVersionHash(), description.getVersionHash());
+        assertEquals(fingerprint.getFaviconHash(), description.getFaviconHash());
+
+        StatusFingerprint favicon = createResponse(response.getPlayers(), new Version("1.12.2", 340),
+                "A Minecraft Server", null).getFingerprint();
+        assertEquals(0, favicon.getFaviconHash());
+        assertEquals(fingerprint.getDescriptionHash(), favicon.getDescriptionHash());
+        assertNotEquals(fingerprint, favicon);
+
+        StatusFingerprint unknownVersion = createResponse(response.getPlayers(), null, "A Minecraft Server", null).getFingerprint();
+        assertEquals(0, unknownVersion.getVersionHash());
+    }
+
+    @Test
+    public void testConsecutiveStringsAreSeparated() {
+        PingResponse.PlayersStatus first = new PingResponse.PlayersStatus(100, 2,
+                Arrays.asList(new PingResponse.Player(new UUID(1, 2), "ab"), new PingResponse.Player(new UUID(1, 2), "c")));
+        PingResponse.PlayersStatus second = new PingResponse.PlayersStatus(100, 2,
+                Arrays.asList(new PingResponse.Player(new UUID(1, 2), "a"), new PingResponse.Player(new UUID(1, 2), "bc")));
+
+        assertNotEquals(createResponse(first, null, "", null).getFingerprint().getPlayersHash(),
+                createResponse(second, null, "", null).getFingerprint().getPlayersHash());
+    }
+
+
+    private PingResponse createResponse(PingResponse.PlayersStatus players, Version version, String description, String favicon) {
+        return new PingResponse(address, new Description(description), players, version, favicon, 0);
+    }
+
+}
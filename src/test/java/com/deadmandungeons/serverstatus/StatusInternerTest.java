@@ -0,0 +1,92 @@
+package com.deadmandungeons.serverstatus;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class StatusInternerTest {
+
+    @After
+    public void disableInterning() {
+        StatusInterner.setEnabled(false);
+    }
+
+
+    @Test
+    public void testDisabled() {
+        String type = new String("Paper");
+        assertSame(type, StatusInterner.intern(type));
+        Version version = new Version("1.12.2", 340);
+        assertSame(version, StatusInterner.intern(version));
+        assertNotSame(StatusInterner.internDescription("A Minecraft Server"), StatusInterner.internDescription("A Minecraft Server"));
+    }
+
+    @Test
+    public void testEqualValuesShareInstance() {
+        StatusInterner.setEnabled(true);
+
+        String type = StatusInterner.intern(new String("Paper"));
+        assertSame(type, StatusInterner.intern(new String("Paper")));
+
+        Version version = StatusInterner.intern(new Version(new String("1.12.2"), 340));
+        assertSame(version, StatusInterner.intern(new Version(new String("1.12.2"), 340)));
+        assertNotSame(version, StatusInterner.intern(new Version("1.12.2", 335)));
+        // The name of a pooled version is interned as well
+        assertSame(StatusInterner.intern(new String("1.12.2")), version.getName());
+
+        Description description = StatusInterner.internDescription("A Minecraft Server");
+        assertSame(description, StatusInterner.internDescription("A Minecraft Server"));
+        assertSame(description, StatusInterner.intern(new Description("A Minecraft Server")));
+
+        List<String> plugins = StatusInterner.intern(Arrays.asList("WorldEdit", "Essentials"));
+        assertSame(plugins, StatusInterner.intern(Arrays.asList(new String("WorldEdit"), new String("Essentials"))));
+        assertSame(StatusInterner.intern(new String("WorldEdit")), plugins.get(0));
+
+        // Disabling interning clears the pools
+        StatusInterner.setEnabled(false);
+        StatusInterner.setEnabled(true);
+        assertNotSame(type, StatusInterner.intern(new String("Paper")));
+    }
+
+    @Test
+    public void testListsAreUnmodifiable() {
+        List<String> plugins = Arrays.asList("WorldEdit", "Essentials");
+        for (boolean enabled : new boolean[]{false, true}) {
+            StatusInterner.setEnabled(enabled);
+            List<String> interned = StatusInterner.intern(plugins);
+            assertEquals(plugins, interned);
+            try {
+                interned.set(0, "WorldGuard");
+                fail("expected the interned list to be unmodifiable");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        StatusInterner.setEnabled(true);
+        String first = StatusInterner.intern(new String("value-0"));
+        String second = StatusInterner.intern(new String("value-1"));
+        // Fill the pool up to its capacity of 4096 values, while keeping the first value recently used
+        for (int i = 2; i < 4096; i++) {
+            StatusInterner.intern("value-" + i);
+        }
+        assertSame(first, StatusInterner.intern(new String("value-0")));
+
+        StatusInterner.intern("value-4096");
+        assertSame(first, StatusInterner.intern(new String("value-0")));
+        assertNotSame(second, StatusInterner.intern(new String("value-1")));
+    }
+
+}
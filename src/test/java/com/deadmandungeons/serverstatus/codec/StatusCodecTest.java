@@ -0,0 +1,86 @@
+package com.deadmandungeons.serverstatus.codec;
+
+import com.deadmandungeons.serverstatus.MinecraftServer;
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.query.QueryResponse;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StatusCodecTest {
+
+    private static final String FAVICON = "data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+
+    @Test
+    public void testPingResponseRoundTrip() throws Exception {
+        Address address = new Address("mc.example.com", 25566);
+        PingResponse.PlayersStatus players = new PingResponse.PlayersStatus(100, 2, Arrays.asList(
+                new PingResponse.Player(UUID.randomUUID(), "Notch"), new PingResponse.Player(UUID.randomUUID(), "Notch")));
+        PingResponse response = new PingResponse(address, new Description("A Minecraft Server"), players, new Version("1.12.2", 340), FAVICON, 42);
+
+        byte[] encoded = StatusCodec.encode(response);
+        MinecraftServer decoded = StatusCodec.decode(encoded);
+
+        assertTrue(decoded instanceof PingResponse);
+        assertEquals(response, decoded);
+        assertEquals(response.getFavicon(), decoded.getFavicon());
+        assertEquals(42, ((PingResponse) decoded).getLatency());
+    }
+
+    @Test
+    public void testQueryResponseRoundTrip() throws Exception {
+        Address address = new Address("mc.example.com");
+        QueryResponse.PlayersList players = new QueryResponse.PlayersList(20, 2, Arrays.asList("Notch", "jeb_"));
+        QueryResponse response = new QueryResponse(address, new Description("A Minecraft Server"), players, new Version("1.12.2", 0),
+                "world", "CraftBukkit on Bukkit 1.12.2", Arrays.asList("WorldEdit", "Essentials"));
+
+        QueryResponse decoded = (QueryResponse) StatusCodec.decode(StatusCodec.encode(response));
+
+        assertEquals(response, decoded);
+        assertEquals(response.getMapName(), decoded.getMapName());
+        assertEquals(response.getServerType(), decoded.getServerType());
+        assertEquals(response.getPlugins(), decoded.getPlugins());
+        assertEquals(((QueryResponse.PlayersList) response.getPlayers()).getList(), ((QueryResponse.PlayersList) decoded.getPlayers()).getList());
+    }
+
+    @Test
+    public void testDecodeFromBufferPosition() throws Exception {
+        MinecraftServer first = new MinecraftServer(new Address("first.example.com"), new Description("first"), new MinecraftServer.Players(10),
+                new Version("1.8", 47));
+        MinecraftServer second = new MinecraftServer(new Address("second.example.com"), new Description("second"),
+                new MinecraftServer.Players(20), new Version("1.8", 47), "not base64");
+        byte[] firstBytes = StatusCodec.encode(first);
+        byte[] secondBytes = StatusCodec.encode(second);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(firstBytes.length + secondBytes.length);
+        buffer.put(firstBytes).put(secondBytes).flip();
+
+        assertEquals(first, StatusCodec.decode(buffer));
+        assertEquals(second, StatusCodec.decode(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void testTruncatedDataIsRejected() throws Exception {
+        PingResponse response = new PingResponse(new Address("mc.example.com"), new Description("A Minecraft Server"),
+                new PingResponse.PlayersStatus(100, 0), 10);
+        byte[] encoded = StatusCodec.encode(response);
+        try {
+            StatusCodec.decode(Arrays.copyOf(encoded, encoded.length - 1));
+            fail("Expected truncated data to be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveIntervalTest {
+
+    private Address address;
+
+    @Before
+    public void createAddress() throws Exception {
+        address = new Address("localhost");
+    }
+
+
+    @Test
+    public void testInitialIntervalIsClamped() {
+        assertEquals(100, new AdaptiveInterval(10, 100, 1000).getIntervalNanos());
+        assertEquals(1000, new AdaptiveInterval(10000, 100, 1000).getIntervalNanos());
+        assertEquals(400, new AdaptiveInterval(400, 100, 1000).getIntervalNanos());
+    }
+
+    @Test
+    public void testChangesShortenInterval() {
+        AdaptiveInterval interval = new AdaptiveInterval(400, 100, 1000);
+        // The first status has nothing to compare to, so it counts as unchanged
+        assertEquals(500, interval.onStatus(createResponse(5, "A Minecraft Server")));
+        assertEquals(625, interval.onStatus(createResponse(5, "A Minecraft Server")));
+        assertEquals(781, interval.onStatus(createResponse(5, "A Minecraft Server")));
+        assertEquals(976, interval.onStatus(createResponse(5, "A Minecraft Server")));
+        assertEquals(1000, interval.onStatus(createResponse(5, "A Minecraft Server")));
+
+        assertEquals(500, interval.onStatus(createResponse(6, "A Minecraft Server")));
+        assertEquals(250, interval.onStatus(createResponse(6, "Maintenance")));
+        assertEquals(125, interval.onStatus(createResponse(7, "Maintenance")));
+        assertEquals(100, interval.onStatus(createResponse(8, "Maintenance")));
+        assertEquals(100, interval.getIntervalNanos());
+    }
+
+    @Test
+    public void testFailuresBackOff() {
+        AdaptiveInterval interval = new AdaptiveInterval(100, 100, 1000);
+        assertEquals(200, interval.onFailure());
+        assertEquals(400, interval.onFailure());
+        assertEquals(800, interval.onFailure());
+        assertEquals(1000, interval.onFailure());
+        // The shift is bounded, so many failures do not overflow the interval
+        for (int i = 0; i < 100; i++) {
+            interval.onFailure();
+        }
+        assertEquals(1000, interval.getIntervalNanos());
+
+        // The interval returns to what it was, and a different status after the failures does not count as a change
+        interval.onStatus(createResponse(5, "A Minecraft Server"));
+        assertEquals(125, interval.getIntervalNanos());
+        interval.onFailure();
+        assertEquals(156, interval.onStatus(createResponse(6, "Maintenance")));
+    }
+
+
+    private PingResponse createResponse(int online, String description) {
+        return new PingResponse(address, new Description(description), new PingResponse.PlayersStatus(100, online), 0);
+    }
+
+}
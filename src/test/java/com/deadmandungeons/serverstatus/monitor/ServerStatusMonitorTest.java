@@ -0,0 +1,214 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServerStatusMonitorTest {
+
+    private final List<SilentServer> servers = new ArrayList<>();
+    private ExecutorService executorService;
+
+    @Before
+    public void startServers() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            SilentServer server = new SilentServer();
+            server.start();
+            servers.add(server);
+        }
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void stopServers() throws Exception {
+        executorService.shutdownNow();
+        for (SilentServer server : servers) {
+            server.close();
+        }
+    }
+
+
+    @Test
+    public void testJitterBounds() {
+        long interval = TimeUnit.SECONDS.toNanos(10);
+        assertEquals(interval - interval / 10, ServerStatusMonitor.applyJitter(interval, 0.1, 0));
+        assertEquals(interval, ServerStatusMonitor.applyJitter(interval, 0.1, 0.5));
+        assertEquals(interval, ServerStatusMonitor.applyJitter(interval, 0, 0.999));
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = ServerStatusMonitor.applyJitter(interval, 0.25, Math.random());
+            assertTrue(delay >= interval - interval / 4 && delay < interval + interval / 4);
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                executorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int current = running.incrementAndGet();
+                        int max = maxRunning.get();
+                        while (max < current && !maxRunning.compareAndSet(max, current)) {
+                            max = maxRunning.get();
+                        }
+                        command.run();
+                    }
+                });
+            }
+        };
+
+        // Every server is due again before its previous poll times out, so polls wait for a permit
+        final ConcurrentMap<Address, Boolean> failed = new ConcurrentHashMap<>();
+        final CountDownLatch allFailed = new CountDownLatch(servers.size());
+        ServerStatusMonitor monitor = new ServerStatusMonitor(executor).timeout(200).maxConcurrentPolls(2)
+                .tickDuration(10, TimeUnit.MILLISECONDS).wheelSize(64);
+        monitor.addListener(new StatusListener() {
+            @Override
+            public void onStatus(Address address, PingResponse response) {
+                running.decrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Address address, IOException cause) {
+                // A poll releases its permit after its result is published, and may then run a waiting poll on the same thread
+                running.decrementAndGet();
+                if (failed.putIfAbsent(address, true) == null) {
+                    allFailed.countDown();
+                }
+            }
+        });
+        for (SilentServer server : servers) {
+            monitor.monitor(new Address("127.0.0.1", server.socket.getLocalPort()), 50, TimeUnit.MILLISECONDS);
+        }
+
+        monitor.start();
+        try {
+            // The backlog of due polls is still dispatched to every server
+            assertTrue(allFailed.await(10, TimeUnit.SECONDS));
+        } finally {
+            monitor.stop();
+        }
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void testRestartDuringPoll() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch pollStarted = new CountDownLatch(1);
+        Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                executorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int current = running.incrementAndGet();
+                        int max = maxRunning.get();
+                        while (max < current && !maxRunning.compareAndSet(max, current)) {
+                            max = maxRunning.get();
+                        }
+                        pollStarted.countDown();
+                        try {
+                            command.run();
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                    }
+                });
+            }
+        };
+
+        // The poll of the silent server runs until it times out, which is much longer than the interval
+        final CountDownLatch failures = new CountDownLatch(2);
+        ServerStatusMonitor monitor = new ServerStatusMonitor(executor).timeout(500).tickDuration(10, TimeUnit.MILLISECONDS)
+                .wheelSize(64);
+        monitor.addListener(new StatusListener() {
+            @Override
+            public void onStatus(Address address, PingResponse response) {
+            }
+
+            @Override
+            public void onFailure(Address address, IOException cause) {
+                failures.countDown();
+            }
+        });
+        monitor.monitor(new Address("127.0.0.1", servers.get(0).socket.getLocalPort()), 50, TimeUnit.MILLISECONDS);
+
+        monitor.start();
+        try {
+            assertTrue(pollStarted.await(5, TimeUnit.SECONDS));
+            // The new wheel must not poll the server while the poll dispatched from the old wheel is still running
+            monitor.stop();
+            monitor.start();
+            assertTrue(failures.await(10, TimeUnit.SECONDS));
+        } finally {
+            monitor.stop();
+        }
+        assertEquals(1, maxRunning.get());
+    }
+
+
+    /**
+     * A server that accepts connections but never answers
+     */
+    private static class SilentServer extends Thread {
+
+        private final ServerSocket socket;
+        private final List<Socket> clients = new ArrayList<>();
+
+        private SilentServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Socket client = socket.accept();
+                    synchronized (clients) {
+                        clients.add(client);
+                    }
+                }
+            } catch (IOException e) {
+                // The server socket was closed
+            }
+        }
+
+        private void close() throws Exception {
+            socket.close();
+            join();
+            synchronized (clients) {
+                for (Socket client : clients) {
+                    client.close();
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.monitor.StatusChangeEvent.Type;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StatusChangeDetectorTest {
+
+    private Address address;
+    private StatusChangeDetector detector;
+    private List<StatusChangeEvent> events;
+
+    @Before
+    public void createDetector() throws Exception {
+        address = new Address("localhost");
+        detector = new StatusChangeDetector();
+        events = new ArrayList<>();
+        // A faulty listener does not prevent the other listeners from being called
+        detector.addListener(new StatusChangeListener() {
+            @Override
+            public void onChange(StatusChangeEvent event) {
+                throw new IllegalStateException("faulty listener");
+            }
+        });
+        detector.addListener(new StatusChangeListener() {
+            @Override
+            public void onChange(StatusChangeEvent event) {
+                events.add(event);
+            }
+        });
+    }
+
+
+    @Test
+    public void testOnlineAndOffline() {
+        PingResponse response = createResponse(1, 100, 2, "1.12.2", "A Minecraft Server", null);
+        detector.onStatus(address, response);
+        assertEquals(Arrays.asList(Type.WENT_ONLINE), getTypes());
+        assertNull(events.get(0).getPrevious());
+        assertSame(response, events.get(0).getCurrent());
+
+        IOException cause = new ConnectException("Connection refused");
+        detector.onFailure(address, cause);
+        detector.onFailure(address, cause);
+        assertEquals(Arrays.asList(Type.WENT_ONLINE, Type.WENT_OFFLINE), getTypes());
+        assertSame(response, events.get(1).getPrevious());
+        assertSame(cause, events.get(1).getCause());
+
+        detector.onStatus(address, response);
+        assertEquals(Type.WENT_ONLINE, events.get(2).getType());
+
+        // A forgotten server comes online again
+        detector.forget(address);
+        detector.onStatus(address, response);
+        assertEquals(Type.WENT_ONLINE, events.get(3).getType());
+    }
+
+    @Test
+    public void testChangePerField() {
+        detector.onStatus(address, createResponse(1, 100, 2, "1.12.2", "A Minecraft Server", null));
+        events.clear();
+
+        detector.onStatus(address, createResponse(1, 100, 2, "1.12.2", "A Minecraft Server", null));
+        assertEquals(Collections.emptyList(), getTypes());
+
+        assertChange(createResponse(2, 100, 2, "1.12.2", "A Minecraft Server", null), Type.PLAYER_COUNT_CHANGED);
+        assertChange(createResponse(2, 50, 2, "1.12.2", "A Minecraft Server", null), Type.PLAYER_MAX_CHANGED);
+        assertChange(createResponse(2, 50, 3, "1.12.2", "A Minecraft Server", null), Type.PLAYER_SAMPLE_CHANGED);
+        assertChange(createResponse(2, 50, 3, "1.13", "A Minecraft Server", null), Type.VERSION_CHANGED);
+        assertChange(createResponse(2, 50, 3, "1.13", "Maintenance", null), Type.DESCRIPTION_CHANGED);
+        assertChange(createResponse(2, 50, 3, "1.13", "Maintenance", "data:image/png;base64,AAEC"), Type.FAVICON_CHANGED);
+
+        // Each changed field emits its own event
+        detector.onStatus(address, createResponse(3, 100, 3, "1.13", "A Minecraft Server", "data:image/png;base64,AAEC"));
+        assertEquals(Arrays.asList(Type.PLAYER_COUNT_CHANGED, Type.PLAYER_MAX_CHANGED, Type.DESCRIPTION_CHANGED), getTypes());
+    }
+
+
+    private void assertChange(PingResponse response, Type type) {
+        detector.onStatus(address, response);
+        assertEquals(Arrays.asList(type), getTypes());
+        assertSame(response, events.get(0).getCurrent());
+        events.clear();
+    }
+
+    private List<Type> getTypes() {
+        List<Type> types = new ArrayList<>();
+        for (StatusChangeEvent event : events) {
+            types.add(event.getType());
+        }
+        return types;
+    }
+
+    private PingResponse createResponse(int online, int max, long playerId, String version, String description, String favicon) {
+        PingResponse.PlayersStatus players = new PingResponse.PlayersStatus(max, online,
+                Collections.singletonList(new PingResponse.Player(new UUID(0, playerId), "Notch")));
+        return new PingResponse(address, new Description(description), players, new Version(version, 340), favicon, 0);
+    }
+
+}
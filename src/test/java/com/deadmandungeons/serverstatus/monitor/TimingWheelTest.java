@@ -0,0 +1,82 @@
+package com.deadmandungeons.serverstatus.monitor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+    // Long enough that the time between creating the wheel and scheduling its tasks is a small fraction of a tick
+    private static final long TICK = 1000000000L;
+
+    @Test
+    public void testExpiryOrder() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4);
+        long startTime = System.nanoTime();
+        // Each deadline is half way through a tick, so it is not affected by the time it takes to schedule
+        wheel.schedule("third", TICK * 5 / 2);
+        wheel.schedule("first", TICK / 2);
+        wheel.schedule("second", TICK / 2);
+        wheel.schedule("fourth", TICK * 7 / 2);
+        // Four rotations of the wheel later, in the same bucket as the third task
+        wheel.schedule("fifth", TICK * 37 / 2);
+
+        RecordingHandler handler = new RecordingHandler();
+        for (int tick = 0; tick <= 20; tick++) {
+            wheel.advance(startTime + tick * TICK, handler.atTick(tick));
+        }
+        assertEquals(Arrays.asList("first@1", "second@1", "third@3", "fourth@4", "fifth@19"), handler.expired);
+    }
+
+    @Test
+    public void testOverdueTasksExpireOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4);
+        long startTime = System.nanoTime();
+        RecordingHandler handler = new RecordingHandler();
+        wheel.advance(startTime + 2 * TICK, handler.atTick(2));
+
+        wheel.schedule("now", 0);
+        wheel.schedule("negative", -TICK);
+        assertEquals(Collections.emptyList(), handler.expired);
+        // Ticks that already elapsed are processed together, and tasks never expire in a tick that was already processed
+        wheel.advance(startTime + 5 * TICK, handler.atTick(5));
+        assertEquals(Arrays.asList("now@5", "negative@5"), handler.expired);
+    }
+
+    @Test
+    public void testNanosUntilNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 16);
+        long startTime = System.nanoTime();
+        RecordingHandler handler = new RecordingHandler();
+        wheel.advance(startTime + TICK / 2, handler);
+
+        long remaining = wheel.nanosUntilNextTick(startTime + TICK / 2);
+        assertTrue(remaining > 0 && remaining <= TICK / 2);
+        assertEquals(0, wheel.nanosUntilNextTick(startTime + 2 * TICK));
+    }
+
+
+    private static class RecordingHandler implements TimingWheel.Handler<String> {
+
+        private final List<String> expired = new ArrayList<>();
+        private int tick;
+
+        private RecordingHandler atTick(int tick) {
+            this.tick = tick;
+            return this;
+        }
+
+        @Override
+        public void expired(String task) {
+            expired.add(task + "@" + tick);
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionTest {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private ServerSocket server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.close();
+    }
+
+
+    @Test
+    public void testAbortiveClose() throws Exception {
+        try (Connection connection = connector().abortiveClose().connect()) {
+            assertEquals(0, connection.getSocket().getSoLinger());
+        }
+        try (Connection connection = connector().connect()) {
+            assertEquals(-1, connection.getSocket().getSoLinger());
+        }
+    }
+
+    @Test
+    public void testBufferSizes() throws Exception {
+        Socket defaultSocket;
+        try (Connection connection = connector().connect()) {
+            defaultSocket = connection.getSocket();
+            try (Connection sizedConnection = connector().sendBufferSize(BUFFER_SIZE).receiveBufferSize(BUFFER_SIZE).connect()) {
+                Socket socket = sizedConnection.getSocket();
+                // The system may round the sizes up, but not back to its defaults
+                assertTrue(socket.getSendBufferSize() >= BUFFER_SIZE);
+                assertTrue(socket.getReceiveBufferSize() >= BUFFER_SIZE);
+                assertNotEquals(defaultSocket.getSendBufferSize(), socket.getSendBufferSize());
+                assertNotEquals(defaultSocket.getReceiveBufferSize(), socket.getReceiveBufferSize());
+            }
+        }
+    }
+
+    @Test
+    public void testLocalAddresses() throws Exception {
+        final InetAddress localAddress = InetAddress.getLoopbackAddress();
+        final AtomicInteger taken = new AtomicInteger();
+        LocalAddressPool pool = new LocalAddressPool(Collections.singletonList(localAddress)) {
+            @Override
+            public InetAddress next() {
+                taken.incrementAndGet();
+                return super.next();
+            }
+        };
+
+        // Each connection is bound to the next address of the pool before it connects
+        for (int i = 1; i <= 3; i++) {
+            try (Connection connection = connector().localAddresses(pool).connect()) {
+                assertEquals(localAddress, connection.getSocket().getLocalAddress());
+            }
+            assertEquals(i, taken.get());
+        }
+    }
+
+
+    private Connection.Connector connector() {
+        return Connection.to(server.getInetAddress(), server.getLocalPort()).timeout(1000);
+    }
+
+}
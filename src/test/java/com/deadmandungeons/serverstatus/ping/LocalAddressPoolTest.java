@@ -0,0 +1,58 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class LocalAddressPoolTest {
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        InetAddress first = InetAddress.getByName("127.0.0.1");
+        InetAddress second = InetAddress.getByName("127.0.0.2");
+        InetAddress third = InetAddress.getByName("127.0.0.3");
+        LocalAddressPool pool = new LocalAddressPool(Arrays.asList(first, second, third));
+
+        for (int round = 0; round < 3; round++) {
+            assertSame(first, pool.next());
+            assertSame(second, pool.next());
+            assertSame(third, pool.next());
+        }
+    }
+
+    @Test
+    public void testAddressesAreCopied() throws Exception {
+        List<InetAddress> addresses = new ArrayList<>();
+        addresses.add(InetAddress.getByName("127.0.0.1"));
+        LocalAddressPool pool = new LocalAddressPool(addresses);
+        addresses.add(InetAddress.getByName("127.0.0.2"));
+
+        assertEquals(1, pool.getAddresses().size());
+        assertSame(pool.next(), pool.next());
+        try {
+            pool.getAddresses().clear();
+            fail("Expected the addresses to be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEmptyPoolIsRejected() {
+        try {
+            new LocalAddressPool(Collections.<InetAddress>emptyList());
+            fail("Expected an empty pool to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import com.deadmandungeons.serverstatus.InetServerAddress;
+import com.deadmandungeons.serverstatus.ping.Connection.PacketBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MinecraftPingerTest {
+
+    private static final int PING_TIMEOUT = 2000;
+    private static final long PING_TOKEN = 3735928559L;
+    private static final int BODY_DELAY = 200;
+    private static final String STATUS = "{\"description\":\"A Minecraft Server\",\"players\":{\"max\":20,\"online\":1},"
+            + "\"version\":{\"name\":\"1.12.2\",\"protocol\":340}}";
+
+    private ScriptedServer server;
+    private InetServerAddress address;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new ScriptedServer();
+        server.start();
+        address = InetServerAddress.resolve("127.0.0.1", server.socket.getLocalPort());
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.socket.close();
+        server.join();
+        assertNull(server.failure);
+    }
+
+
+    @Test
+    public void testPipelinedWriteOrder() throws Exception {
+        PingResponse response = new MinecraftPinger(address, PING_TIMEOUT).pipelined().pingServerStatus();
+
+        assertEquals(20, response.getPlayers().getMax());
+        // The status request was sent in the same write as the handshake, so it had arrived once the handshake was read
+        assertTrue(server.availableAfterHandshake >= 2);
+        assertEquals(Arrays.asList("handshake", "status", "ping"), server.received);
+    }
+
+    @Test
+    public void testEagerPingIsSentBeforeStatusBody() throws Exception {
+        // The server only sends the rest of the status body once it received the ping, so a late ping would time out
+        server.bodyAfterPing = true;
+        PingResponse response = new MinecraftPinger(address, PING_TIMEOUT).eagerPing().pingServerStatus();
+
+        assertEquals(20, response.getPlayers().getMax());
+        assertEquals(Arrays.asList("handshake", "status", "ping"), server.received);
+        // The pong followed the rest of the status body, so the latency includes the body transfer
+        assertTrue(response.getLatency() >= BODY_DELAY);
+    }
+
+    @Test
+    public void testEagerPingWithoutPong() throws Exception {
+        server.pong = false;
+        PingResponse response = new MinecraftPinger(address, PING_TIMEOUT).eagerPing().pingServerStatus();
+
+        // The server closed the connection instead of answering the ping, so the connection latency is used
+        assertEquals(20, response.getPlayers().getMax());
+        assertTrue(response.getLatency() < BODY_DELAY);
+    }
+
+    @Test
+    public void testEagerPingWithMangledPong() throws Exception {
+        server.pongToken = PING_TOKEN + 1;
+        try {
+            new MinecraftPinger(address, PING_TIMEOUT).eagerPing().pingServerStatus();
+            fail("Expected the mangled pong to be rejected");
+        } catch (IOException e) {
+            assertEquals("Received mangled ping response packet", e.getMessage());
+        }
+    }
+
+
+    /**
+     * A server that answers a single status request and ping of the current protocol, and records the packets it received
+     */
+    private static class ScriptedServer extends Thread {
+
+        private final ServerSocket socket;
+        private final List<String> received = new CopyOnWriteArrayList<>();
+        private volatile int availableAfterHandshake;
+        private volatile boolean bodyAfterPing;
+        private volatile boolean pong = true;
+        private volatile long pongToken = PING_TOKEN;
+        private volatile Throwable failure;
+
+        private ScriptedServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        }
+
+        @Override
+        public void run() {
+            try (Socket client = socket.accept()) {
+                DataInputStream input = new DataInputStream(client.getInputStream());
+                DataOutputStream output = new DataOutputStream(client.getOutputStream());
+
+                byte[] handshake = readPacket(input);
+                assertEquals(0, handshake[0]);
+                assertEquals(1, handshake[handshake.length - 1]);
+                received.add("handshake");
+                availableAfterHandshake = input.available();
+                assertTrue(Arrays.equals(new byte[] {0}, readPacket(input)));
+                received.add("status");
+
+                PacketBuilder statusPacket = new PacketBuilder();
+                statusPacket.writeVarInt(0);
+                statusPacket.writeVarUTF(STATUS);
+                byte[] status = statusPacket.toByteArray();
+                // Half of the packet includes the length header
+                int split = (bodyAfterPing ? status.length / 2 : status.length);
+                output.write(status, 0, split);
+                output.flush();
+
+                byte[] ping = readPacket(input);
+                assertEquals(9, ping.length);
+                assertEquals(1, ping[0]);
+                received.add("ping");
+                if (bodyAfterPing) {
+                    Thread.sleep(BODY_DELAY);
+                    output.write(status, split, status.length - split);
+                }
+                if (pong) {
+                    output.writeByte(9);
+                    output.writeByte(1);
+                    output.writeLong(pongToken);
+                    output.flush();
+                    while (input.read() != -1) {
+                        // Wait for the client to close the connection
+                    }
+                }
+            } catch (Throwable e) {
+                if (!socket.isClosed()) {
+                    failure = e;
+                }
+            }
+        }
+
+        private static byte[] readPacket(DataInputStream input) throws IOException {
+            int length = 0;
+            for (int i = 0; i < 5; i++) {
+                int part = input.readUnsignedByte();
+                length |= (part & 0x7F) << 7 * i;
+                if ((part & 0x80) == 0) {
+                    break;
+                }
+            }
+            byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            return bytes;
+        }
+
+    }
+
+}
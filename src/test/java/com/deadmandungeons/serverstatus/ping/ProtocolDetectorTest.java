@@ -0,0 +1,133 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import com.deadmandungeons.serverstatus.InetServerAddress;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ProtocolDetectorTest {
+
+    private static final int PING_TIMEOUT = 500;
+
+    private LegacyServer server;
+    private InetServerAddress address;
+    private ProtocolDetector detector;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new LegacyServer();
+        server.start();
+        address = InetServerAddress.resolve("127.0.0.1", server.socket.getLocalPort());
+        detector = new ProtocolDetector();
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.socket.close();
+        server.join();
+    }
+
+
+    @Test
+    public void testMismatchIsProbedAndMemoized() throws Exception {
+        Pinger pinger = detector.detect(new MinecraftPinger(address, PING_TIMEOUT));
+
+        // The current protocol gets an unreadable answer, so the legacy protocols are probed
+        assertEquals(20, pinger.pingServerStatus().getPlayers().getMax());
+        assertEquals(PingProtocol.LEGACY_47, detector.getProtocol(address));
+        assertEquals(2, server.connections.get());
+
+        assertEquals(20, pinger.pingServerStatus().getPlayers().getMax());
+        assertEquals(3, server.connections.get());
+    }
+
+    @Test
+    public void testTimeoutKeepsProtocol() throws Exception {
+        Pinger pinger = detector.detect(new MinecraftPinger(address, PING_TIMEOUT));
+        pinger.pingServerStatus();
+        int connections = server.connections.get();
+
+        server.silent = true;
+        try {
+            pinger.pingServerStatus();
+            fail("Expected the ping to time out");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+        assertEquals(connections + 1, server.connections.get());
+        assertEquals(PingProtocol.LEGACY_47, detector.getProtocol(address));
+    }
+
+    @Test
+    public void testTimeoutIsNotProbed() throws Exception {
+        server.silent = true;
+        try {
+            detector.detect(new MinecraftPinger(address, PING_TIMEOUT)).pingServerStatus();
+            fail("Expected the ping to time out");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+        assertEquals(1, server.connections.get());
+        assertNull(detector.getProtocol(address));
+    }
+
+
+    /**
+     * A server that only answers the 1.4-1.6 legacy status request, or answers nothing while silent
+     */
+    private static class LegacyServer extends Thread {
+
+        private final ServerSocket socket;
+        private final AtomicInteger connections = new AtomicInteger();
+        private volatile boolean silent;
+
+        private LegacyServer() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        }
+
+        @Override
+        public void run() {
+            while (!socket.isClosed()) {
+                try (Socket client = socket.accept()) {
+                    connections.incrementAndGet();
+                    if (silent) {
+                        while (client.getInputStream().read() != -1) {
+                            // Wait for the client to give up
+                        }
+                        continue;
+                    }
+                    DataInputStream input = new DataInputStream(client.getInputStream());
+                    DataOutputStream output = new DataOutputStream(client.getOutputStream());
+                    if (input.readUnsignedByte() == 0xFE) {
+                        String response = "\u00A71\u0000" + "74\u0000" + "1.6.4\u0000" + "A Minecraft Server\u0000" + "1\u0000" + "20";
+                        output.writeByte(0xFF);
+                        output.writeShort(response.length());
+                        output.write(response.getBytes(StandardCharsets.UTF_16BE));
+                    } else {
+                        // A packet with an unexpected packet id
+                        output.write(new byte[] {1, 0x7F});
+                    }
+                    output.flush();
+                } catch (IOException e) {
+                    // The client closed the connection or the server socket was closed
+                }
+            }
+        }
+
+    }
+
+}
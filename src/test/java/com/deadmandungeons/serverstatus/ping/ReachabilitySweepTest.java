@@ -0,0 +1,55 @@
+package com.deadmandungeons.serverstatus.ping;
+
+import com.deadmandungeons.serverstatus.InetServerAddress;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReachabilitySweepTest {
+
+    @Test
+    public void testSweep() throws Exception {
+        int closedPort;
+        try (ServerSocket closed = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            closedPort = closed.getLocalPort();
+        }
+
+        // The handshake is completed by the backlog of the server socket, so it does not need to accept
+        try (ServerSocket open = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            InetServerAddress openAddress = InetServerAddress.resolve("127.0.0.1", open.getLocalPort());
+            InetServerAddress closedAddress = InetServerAddress.resolve("127.0.0.1", closedPort);
+
+            List<ReachabilitySweep.Reachability> results = new ReachabilitySweep().concurrency(1)
+                    .sweep(Arrays.asList(closedAddress, openAddress, openAddress));
+
+            assertEquals(3, results.size());
+            assertEquals(closedAddress, results.get(0).getAddress());
+            assertFalse(results.get(0).isReachable());
+            assertEquals(-1, results.get(0).getLatency());
+            for (ReachabilitySweep.Reachability result : results.subList(1, 3)) {
+                assertEquals(openAddress, result.getAddress());
+                assertTrue(result.isReachable());
+                assertTrue(result.getLatency() >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidTimeout() {
+        try {
+            new ReachabilitySweep().timeout(0);
+            fail("expected a timeout of 0 to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
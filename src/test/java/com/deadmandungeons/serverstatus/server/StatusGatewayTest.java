@@ -0,0 +1,141 @@
+package com.deadmandungeons.serverstatus.server;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class StatusGatewayTest {
+
+    private StatusGateway gateway;
+    private Address address;
+
+    @Before
+    public void startGateway() throws Exception {
+        gateway = new StatusGateway(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        gateway.start();
+        address = new Address("mc.example.com");
+    }
+
+    @After
+    public void stopGateway() {
+        gateway.stop(0);
+    }
+
+
+    @Test
+    public void testStatus() throws Exception {
+        assertEquals(404, request("GET", "/status/" + address, null).getResponseCode());
+
+        gateway.onStatus(address, createResponse(1, null));
+        HttpURLConnection connection = request("GET", "/status/" + address, null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("application/json; charset=utf-8", connection.getContentType());
+        String body = readBody(connection);
+        assertTrue(body.contains("\"online\":true"));
+        assertTrue(body.contains("\"Notch\""));
+        String etag = connection.getHeaderField("ETag");
+        assertNotNull(etag);
+
+        // An unchanged status keeps its ETag, so readers can revalidate it
+        gateway.onStatus(address, createResponse(1, null));
+        assertEquals(304, request("GET", "/status/" + address, etag).getResponseCode());
+
+        gateway.onStatus(address, createResponse(2, null));
+        connection = request("GET", "/status/" + address, etag);
+        assertEquals(200, connection.getResponseCode());
+        assertNotEquals(etag, connection.getHeaderField("ETag"));
+
+        gateway.onFailure(address, new ConnectException("Connection refused"));
+        connection = request("GET", "/status/" + address, null);
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(readBody(connection).contains("\"online\":false"));
+
+        gateway.remove(address);
+        assertEquals(404, request("GET", "/status/" + address, null).getResponseCode());
+    }
+
+    @Test
+    public void testFavicon() throws Exception {
+        gateway.onStatus(address, createResponse(1, null));
+        assertEquals(404, request("GET", "/favicon/" + address, null).getResponseCode());
+
+        gateway.onStatus(address, createResponse(1, "data:image/png;base64,AAEC"));
+        HttpURLConnection connection = request("GET", "/favicon/" + address, null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("image/png", connection.getContentType());
+        try (InputStream input = connection.getInputStream()) {
+            assertEquals(Arrays.toString(new byte[]{0, 1, 2}), Arrays.toString(readFully(input)));
+        }
+    }
+
+    @Test
+    public void testMethods() throws Exception {
+        gateway.onStatus(address, createResponse(1, null));
+
+        HttpURLConnection connection = request("HEAD", "/status/" + address, null);
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentLength() > 0);
+
+        connection = request("POST", "/status/" + address, null);
+        assertEquals(405, connection.getResponseCode());
+        assertEquals("GET, HEAD", connection.getHeaderField("Allow"));
+    }
+
+
+    private HttpURLConnection request(String method, String path, String ifNoneMatch) throws IOException {
+        InetSocketAddress localAddress = gateway.getLocalAddress();
+        URL url = new URL("http", localAddress.getHostString(), localAddress.getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setUseCaches(false);
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        return connection;
+    }
+
+    private static String readBody(HttpURLConnection connection) throws IOException {
+        try (InputStream input = connection.getInputStream()) {
+            return new String(readFully(input), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    private PingResponse createResponse(int online, String favicon) {
+        PingResponse.PlayersStatus players = new PingResponse.PlayersStatus(100, online,
+                Collections.singletonList(new PingResponse.Player(new UUID(1, 2), "Notch")));
+        return new PingResponse(address, new Description("A Minecraft Server"), players, new Version("1.12.2", 340), favicon, 0);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.deadmandungeons.serverstatus.server;
+
+import com.deadmandungeons.serverstatus.InetServerAddress;
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.ping.MinecraftPinger;
+import com.deadmandungeons.serverstatus.ping.PingProtocol;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.ping.RawStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StatusResponderTest {
+
+    private static final int PING_TIMEOUT = 3000;
+
+    private PingResponse status;
+    private StatusResponder responder;
+    private InetServerAddress address;
+
+    @Before
+    public void startResponder() throws Exception {
+        status = new PingResponse(new Address("localhost"), new Description("A Minecraft Server"),
+                new PingResponse.PlayersStatus(100, 1, Collections.singletonList(new PingResponse.Player(UUID.randomUUID(), "Notch"))),
+                new Version("1.12.2", 340), 0);
+        responder = new StatusResponder(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        responder.setStatus(status);
+        responder.start();
+        address = InetServerAddress.resolve("127.0.0.1", responder.getLocalAddress().getPort());
+    }
+
+    @After
+    public void stopResponder() {
+        responder.stop();
+    }
+
+
+    @Test
+    public void testStatusResponse() throws Exception {
+        PingResponse response = new MinecraftPinger(address, PING_TIMEOUT).pipelined().eagerPing().pingServerStatus();
+
+        assertEquals(status.getDescription(), response.getDescription());
+        assertEquals(status.getPlayers(), response.getPlayers());
+        assertEquals(status.getVersion(), response.getVersion());
+    }
+
+    @Test
+    public void testSamplePlayersAreReused() throws Exception {
+        // Players are reused across pinger instances, such as those created by each call of the static API
+        PingResponse first = new MinecraftPinger(address, PING_TIMEOUT).pingServerStatus();
+        PingResponse second = new MinecraftPinger(address, PING_TIMEOUT).pingServerStatus();
+
+        assertEquals(status.getPlayers().getSample(), second.getPlayers().getSample());
+        assertSame(first.getPlayers().getSample().get(0), second.getPlayers().getSample().get(0));
+    }
+
+    @Test
+    public void testRawStatus() throws Exception {
+        RawStatus raw = new MinecraftPinger(address, PING_TIMEOUT).pingRawStatus(true);
+        assertTrue(raw.isWellFormed());
+
+        ByteBuffer payload = raw.getPayload();
+        assertTrue(payload.isReadOnly());
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        assertTrue(new String(bytes, StandardCharsets.UTF_8).contains("\"Notch\""));
+    }
+
+    @Test
+    public void testLegacyResponses() throws Exception {
+        PingResponse response47 = new MinecraftPinger(address, PING_TIMEOUT).protocol(PingProtocol.LEGACY_47).pingServerStatus();
+        assertEquals(status.getDescription(), response47.getDescription());
+        assertEquals(status.getPlayers().getCount(), response47.getPlayers().getCount());
+        assertEquals(status.getVersion(), response47.getVersion());
+
+        PingResponse response17 = new MinecraftPinger(address, PING_TIMEOUT).protocol(PingProtocol.LEGACY_17).pingServerStatus();
+        assertEquals(status.getDescription(), response17.getDescription());
+        assertEquals(status.getPlayers().getMax(), response17.getPlayers().getMax());
+    }
+
+    @Test
+    public void testHostStatus() throws Exception {
+        PingResponse hostStatus = new PingResponse(new Address("127.0.0.1"), new Description("Virtual Host"),
+                new PingResponse.PlayersStatus(20, 5), new Version("1.12.2", 340), 0);
+        responder.setStatus("127.0.0.1", hostStatus);
+
+        assertEquals(hostStatus.getDescription(), new MinecraftPinger(address, PING_TIMEOUT).pingServerStatus().getDescription());
+        assertEquals(hostStatus.getDescription(),
+                new MinecraftPinger(address, PING_TIMEOUT).protocol(PingProtocol.LEGACY_47).pingServerStatus().getDescription());
+    }
+
+}
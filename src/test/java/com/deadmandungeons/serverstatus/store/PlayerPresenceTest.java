@@ -0,0 +1,145 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import com.deadmandungeons.serverstatus.query.QueryResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PlayerPresenceTest {
+
+    private Address address1;
+    private Address address2;
+
+    @Before
+    public void createAddresses() throws Exception {
+        address1 = new Address("mc1.example.com");
+        address2 = new Address("mc2.example.com");
+    }
+
+
+    @Test
+    public void testInvalidMaxPlayers() {
+        try {
+            new PlayerPresence(0);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSamplePlayersAreIndexed() {
+        PlayerPresence presence = new PlayerPresence(16);
+        presence.onStatus(address1, createResponse(address1, createPlayer(new UUID(0, 0), "Welcome!"),
+                createPlayer(new UUID(1, 2), "Notch"), createPlayer(new UUID(-1, Long.MIN_VALUE), "jeb_")));
+
+        // The nil UUID is not a player
+        assertEquals(2, presence.size());
+        assertNull(presence.getLastSeen(new UUID(0, 0)));
+        assertNull(presence.getLastSeen("Welcome!"));
+
+        PlayerPresence.Sighting sighting = presence.getLastSeen(new UUID(1, 2));
+        assertEquals("Notch", sighting.getName());
+        assertEquals(address1, sighting.getAddress());
+        assertEquals(new UUID(-1, Long.MIN_VALUE), presence.getId("JEB_"));
+        assertNull(presence.getLastSeen(new UUID(2, 1)));
+
+        // A player seen on another server moves, and a changed capitalization is kept
+        presence.onStatus(address2, createResponse(address2, createPlayer(new UUID(1, 2), "NOTCH")));
+        assertEquals(2, presence.size());
+        sighting = presence.getLastSeen("notch");
+        assertEquals("NOTCH", sighting.getName());
+        assertEquals(address2, sighting.getAddress());
+    }
+
+    @Test
+    public void testPlayersWithCollidingBits() {
+        // Each of these UUIDs has the same xor of its bits, so they all probe the same slots
+        List<UUID> ids = Arrays.asList(new UUID(1, 2), new UUID(2, 1), new UUID(3, 0), new UUID(0, 3));
+        PlayerPresence presence = new PlayerPresence(4);
+        presence.onStatus(address1, createResponse(address1, createPlayers(ids, 0)));
+        for (UUID id : ids) {
+            assertEquals(id, presence.getLastSeen(id).getId());
+        }
+
+        // The index is full, so the least recently seen (first) player is evicted and the rest of its cluster can still be found
+        presence.onStatus(address2, createResponse(address2, createPlayer(new UUID(0, 5), "Dinnerbone")));
+        assertEquals(4, presence.size());
+        assertNull(presence.getLastSeen(ids.get(0)));
+        assertNull(presence.getLastSeen("Player0"));
+        for (UUID id : ids.subList(1, ids.size())) {
+            assertEquals(id, presence.getLastSeen(id).getId());
+        }
+        assertEquals(address2, presence.getLastSeen(new UUID(0, 5)).getAddress());
+
+        // The evicted player can be added again in place of another player
+        presence.onStatus(address1, createResponse(address1, createPlayer(ids.get(0), "Player0")));
+        assertEquals(4, presence.size());
+        assertEquals(ids.get(0), presence.getId("player0"));
+    }
+
+    @Test
+    public void testNameTakenByAnotherPlayer() {
+        PlayerPresence presence = new PlayerPresence(16);
+        presence.onStatus(address1, createResponse(address1, createPlayer(new UUID(1, 2), "Notch")));
+        presence.onStatus(address1, createResponse(address1, createPlayer(new UUID(3, 4), "notch")));
+
+        assertEquals(new UUID(3, 4), presence.getId("Notch"));
+        // The previous player is still indexed by UUID, but no longer has a name
+        assertNull(presence.getLastSeen(new UUID(1, 2)).getName());
+
+        presence.onStatus(address1, createResponse(address1, createPlayer(new UUID(1, 2), "Notch2")));
+        assertEquals(new UUID(1, 2), presence.getId("Notch2"));
+        assertEquals(new UUID(3, 4), presence.getId("Notch"));
+    }
+
+    @Test
+    public void testQueryUpdatesKnownPlayers() {
+        PlayerPresence presence = new PlayerPresence(16);
+        presence.onStatus(address1, createResponse(address1, createPlayer(new UUID(1, 2), "Notch")));
+
+        QueryResponse.PlayersList players = new QueryResponse.PlayersList(100, 2, Arrays.asList("notch", "jeb_"));
+        presence.onQuery(address2, new QueryResponse(address2, new Description("A Minecraft Server"), players, null, "world",
+                "SMP", Collections.<String>emptyList()));
+
+        // Query player lists only have names, so unknown players are not indexed
+        assertEquals(1, presence.size());
+        assertEquals(address2, presence.getLastSeen("Notch").getAddress());
+        assertNull(presence.getLastSeen("jeb_"));
+    }
+
+
+    private static PingResponse.Player createPlayer(UUID id, String name) {
+        return new PingResponse.Player(id, name);
+    }
+
+    private static List<PingResponse.Player> createPlayers(List<UUID> ids, int firstName) {
+        List<PingResponse.Player> players = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            players.add(createPlayer(ids.get(i), "Player" + (firstName + i)));
+        }
+        return players;
+    }
+
+    private static PingResponse createResponse(Address address, PingResponse.Player... sample) {
+        return createResponse(address, Arrays.asList(sample));
+    }
+
+    private static PingResponse createResponse(Address address, List<PingResponse.Player> sample) {
+        return new PingResponse(address, new Description("A Minecraft Server"),
+                new PingResponse.PlayersStatus(100, sample.size(), sample), 0);
+    }
+
+}
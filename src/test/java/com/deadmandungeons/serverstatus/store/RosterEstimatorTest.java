@@ -0,0 +1,157 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RosterEstimatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    private Address address;
+
+    @Before
+    public void createAddress() throws Exception {
+        address = new Address("mc.example.com");
+    }
+
+
+    @Test
+    public void testSamplesAreMerged() {
+        RosterEstimator estimator = new RosterEstimator(60000);
+        estimator.onStatus(address, createResponse(4, 1, 2), 0);
+        estimator.onStatus(address, createResponse(4, 3, 4), 1000);
+
+        // Each sample had half of the online players, so the players of the first sample were missed with a likelihood of 0.5
+        List<RosterEstimator.Estimate> roster = estimator.getRoster(address);
+        assertEquals(Arrays.asList("3", "4", "1", "2"), getNames(roster));
+        assertEquals(1, roster.get(0).getConfidence(), DELTA);
+        assertEquals(0.5, roster.get(3).getConfidence(), DELTA);
+        assertEquals(1000, roster.get(0).getLastSeen());
+        assertEquals(0, roster.get(3).getLastSeen());
+
+        // A player that appears again is fully confident again
+        estimator.onStatus(address, createResponse(4, 1, 3), 2000);
+        roster = estimator.getRoster(address);
+        assertEquals(1, getEstimate(roster, "1").getConfidence(), DELTA);
+        assertEquals(0.5, getEstimate(roster, "4").getConfidence(), DELTA);
+        assertEquals(0.25, getEstimate(roster, "2").getConfidence(), DELTA);
+    }
+
+    @Test
+    public void testMinConfidenceAndExpiry() {
+        RosterEstimator estimator = new RosterEstimator(10000).minConfidence(0.2);
+        estimator.onStatus(address, createResponse(4, 1, 2), 0);
+        estimator.onStatus(address, createResponse(4, 3, 4), 1000);
+        estimator.onStatus(address, createResponse(4, 3, 4), 2000);
+        // The likelihood of the first players is 0.25, and below the minimum confidence after the next poll
+        assertEquals(4, estimator.getRoster(address).size());
+        estimator.onStatus(address, createResponse(4, 3, 4), 3000);
+        assertEquals(Arrays.asList("3", "4"), getNames(estimator.getRoster(address)));
+
+        // A small sample hardly lowers the confidence, so the player is dropped by the expiry instead
+        estimator = new RosterEstimator(10000);
+        estimator.onStatus(address, createResponse(100, 1), 0);
+        estimator.onStatus(address, createResponse(100, 2), 10000);
+        assertEquals(2, estimator.getRoster(address).size());
+        estimator.onStatus(address, createResponse(100, 2), 10001);
+        assertEquals(Arrays.asList("2"), getNames(estimator.getRoster(address)));
+    }
+
+    @Test
+    public void testRosterIsLimitedToOnlineCount() {
+        RosterEstimator estimator = new RosterEstimator(60000);
+        estimator.onStatus(address, createResponse(4, 1, 2), 0);
+        estimator.onStatus(address, createResponse(3, 3, 4), 1000);
+
+        List<RosterEstimator.Estimate> roster = estimator.getRoster(address);
+        assertEquals(3, roster.size());
+        assertEquals(Arrays.asList("3", "4"), getNames(roster).subList(0, 2));
+        assertEquals(1.0 / 3, roster.get(2).getConfidence(), DELTA);
+    }
+
+    @Test
+    public void testCompleteSampleResetsRoster() {
+        RosterEstimator estimator = new RosterEstimator(60000);
+        estimator.onStatus(address, createResponse(4, 1, 2), 0);
+        estimator.onStatus(address, createResponse(4, 3, 4), 1000);
+        assertEquals(4, estimator.getRoster(address).size());
+
+        // Every online player is in the sample, so the other players certainly left
+        estimator.onStatus(address, createResponse(2, 2, 3), 2000);
+        List<RosterEstimator.Estimate> roster = estimator.getRoster(address);
+        assertEquals(Arrays.asList("2", "3"), getNames(roster));
+        assertEquals(1, roster.get(1).getConfidence(), DELTA);
+
+        // The nil UUID is not a player, so it does not make a sample complete
+        List<PingResponse.Player> sample = new ArrayList<>();
+        sample.add(new PingResponse.Player(new UUID(0, 0), "Welcome!"));
+        sample.add(createPlayer(5));
+        estimator.onStatus(address, createResponse(2, sample), 3000);
+        roster = estimator.getRoster(address);
+        assertEquals(2, roster.size());
+        assertEquals("5", roster.get(0).getName());
+        assertEquals(0.5, roster.get(1).getConfidence(), DELTA);
+
+        estimator.onFailure(address, new ConnectException("Connection refused"));
+        assertTrue(estimator.getRoster(address).isEmpty());
+    }
+
+
+    private static PingResponse.Player createPlayer(int id) {
+        return new PingResponse.Player(new UUID(0, id), String.valueOf(id));
+    }
+
+    private PingResponse createResponse(int online, int... sampleIds) {
+        List<PingResponse.Player> sample = new ArrayList<>();
+        for (int id : sampleIds) {
+            sample.add(createPlayer(id));
+        }
+        return createResponse(online, sample);
+    }
+
+    private PingResponse createResponse(int online, List<PingResponse.Player> sample) {
+        return new PingResponse(address, new Description("A Minecraft Server"), new PingResponse.PlayersStatus(100, online, sample),
+                new Version("1.12.2", 340), 0);
+    }
+
+    // The names of the roster, where players with the same confidence and last seen time are in no particular order so they are sorted
+    private static List<String> getNames(List<RosterEstimator.Estimate> roster) {
+        List<String> names = new ArrayList<>();
+        int tieStart = 0;
+        for (int i = 0; i < roster.size(); i++) {
+            RosterEstimator.Estimate estimate = roster.get(i);
+            RosterEstimator.Estimate tieEstimate = roster.get(tieStart);
+            if (estimate.getConfidence() != tieEstimate.getConfidence() || estimate.getLastSeen() != tieEstimate.getLastSeen()) {
+                Collections.sort(names.subList(tieStart, i));
+                tieStart = i;
+            }
+            names.add(estimate.getName());
+        }
+        Collections.sort(names.subList(tieStart, names.size()));
+        return names;
+    }
+
+    private static RosterEstimator.Estimate getEstimate(List<RosterEstimator.Estimate> roster, String name) {
+        for (RosterEstimator.Estimate estimate : roster) {
+            if (estimate.getName().equals(name)) {
+                return estimate;
+            }
+        }
+        throw new AssertionError("expected " + name + " in the roster");
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.MinecraftServer.Version;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.ConnectException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReopenKeysByMonitoredAddress() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        // The monitored address resolves through an SRV record, so the response has the address of the target
+        Address monitored = new Address("example.com");
+        Address target = new Address("mc1.example.com", 25570);
+        Address offline = new Address("offline.example.com");
+        PingResponse response = new PingResponse(target, new Description("A Minecraft Server"), new PingResponse.PlayersStatus(100, 5),
+                new Version("1.12.2", 340), null, 42);
+
+        try (SnapshotLog log = new SnapshotLog(directory).open()) {
+            log.append(offline, 1000, response);
+            log.append(monitored, 2000, response);
+            log.append(offline, 3000, null);
+        }
+
+        try (SnapshotLog log = new SnapshotLog(directory).open()) {
+            StatusSnapshot snapshot = log.getLatest(monitored);
+            assertNotNull(snapshot);
+            assertEquals(monitored, snapshot.getAddress());
+            assertEquals(2000, snapshot.getTime());
+            assertEquals(response, snapshot.getResponse());
+            assertNull(log.getLatest(target));
+
+            // The offline record replaces the earlier status record of the same monitored address
+            StatusSnapshot offlineSnapshot = log.getLatest(offline);
+            assertEquals(3000, offlineSnapshot.getTime());
+            assertFalse(offlineSnapshot.isOnline());
+            assertEquals(2, log.getSnapshots().size());
+        }
+    }
+
+    @Test
+    public void testAppendFailuresAreReported() throws Exception {
+        final List<Exception> failures = new ArrayList<>();
+        SnapshotLog log = new SnapshotLog(folder.getRoot().toPath()).failureHandler(new SnapshotLog.AppendFailureHandler() {
+            @Override
+            public void onAppendFailure(Address address, Exception cause) {
+                failures.add(cause);
+            }
+        });
+
+        // The log is not open, so the poll results can not be appended
+        Address address = new Address("mc.example.com");
+        log.onFailure(address, new ConnectException("Connection refused"));
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0) instanceof IllegalStateException);
+
+        log.open();
+        try {
+            log.onFailure(address, new ConnectException("Connection refused"));
+            assertEquals(1, failures.size());
+            assertNotNull(log.getLatest(address));
+        } finally {
+            log.close();
+        }
+    }
+
+}
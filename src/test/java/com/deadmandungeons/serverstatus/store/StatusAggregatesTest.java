@@ -0,0 +1,137 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import com.deadmandungeons.serverstatus.MinecraftServer.Description;
+import com.deadmandungeons.serverstatus.ping.PingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StatusAggregatesTest {
+
+    private static final double DELTA = 1e-9;
+
+    private Address address1;
+    private Address address2;
+    private Address address3;
+
+    @Before
+    public void createAddresses() throws Exception {
+        address1 = new Address("mc1.example.com");
+        address2 = new Address("mc2.example.com");
+        address3 = new Address("mc3.example.com");
+    }
+
+
+    @Test
+    public void testNetworkAggregate() {
+        StatusAggregates aggregates = new StatusAggregates();
+        aggregates.onStatus(address1, createResponse(address1, 10, 20));
+        aggregates.onStatus(address2, createResponse(address2, 30, 40));
+        aggregates.onFailure(address3, new ConnectException("Connection refused"));
+        assertAggregate(aggregates.getNetwork(), 3, 2, 40);
+        assertEquals(20, aggregates.getNetwork().getAveragePlayerCount(), DELTA);
+        assertEquals(30, aggregates.getNetwork().getAverageLatency(), DELTA);
+
+        // Each poll replaces the previous values of the server
+        aggregates.onStatus(address1, createResponse(address1, 5, 20));
+        aggregates.onStatus(address3, createResponse(address3, 1, 60));
+        aggregates.onFailure(address2, new ConnectException("Connection refused"));
+        assertAggregate(aggregates.getNetwork(), 3, 2, 6);
+        assertEquals(40, aggregates.getNetwork().getAverageLatency(), DELTA);
+    }
+
+    @Test
+    public void testAddAndRemoveAreSymmetric() {
+        StatusAggregates aggregates = new StatusAggregates();
+        assertNull(aggregates.getGroup("lobby"));
+
+        // A server may be added to a group before and after it is polled
+        aggregates.addToGroup("lobby", address1);
+        aggregates.onStatus(address1, createResponse(address1, 10, 20));
+        aggregates.onStatus(address2, createResponse(address2, 30, 40));
+        aggregates.addToGroup("lobby", address2);
+        aggregates.addToGroup("lobby", address2);
+        aggregates.addToGroup("survival", address2);
+        StatusAggregates.Aggregate lobby = aggregates.getGroup("lobby");
+        StatusAggregates.Aggregate survival = aggregates.getGroup("survival");
+        assertAggregate(lobby, 2, 2, 40);
+        assertAggregate(survival, 1, 1, 30);
+
+        aggregates.onStatus(address2, createResponse(address2, 35, 40));
+        assertAggregate(lobby, 2, 2, 45);
+        assertAggregate(survival, 1, 1, 35);
+
+        aggregates.removeFromGroup("lobby", address2);
+        aggregates.removeFromGroup("lobby", address2);
+        assertAggregate(lobby, 1, 1, 10);
+        assertAggregate(aggregates.getNetwork(), 2, 2, 45);
+
+        // Removing every server returns every aggregate to zero
+        aggregates.remove(address1);
+        aggregates.remove(address2);
+        aggregates.remove(address2);
+        assertAggregate(lobby, 0, 0, 0);
+        assertAggregate(survival, 0, 0, 0);
+        assertAggregate(aggregates.getNetwork(), 0, 0, 0);
+        assertEquals(0, aggregates.getNetwork().getAverageLatency(), DELTA);
+        assertTrue(aggregates.getTopByPlayers(10).isEmpty());
+        assertTrue(aggregates.getTopByLatency(10).isEmpty());
+    }
+
+    @Test
+    public void testTopK() {
+        StatusAggregates aggregates = new StatusAggregates();
+        aggregates.onStatus(address1, createResponse(address1, 10, 50));
+        aggregates.onStatus(address2, createResponse(address2, 30, 20));
+        aggregates.onStatus(address3, createResponse(address3, 20, 80));
+
+        assertEquals(Arrays.asList(address2, address3), getAddresses(aggregates.getTopByPlayers(2)));
+        assertEquals(Arrays.asList(address2, address1, address3), getAddresses(aggregates.getTopByLatency(5)));
+        assertEquals(30, aggregates.getTopByPlayers(1).get(0).getValue());
+        assertTrue(aggregates.getTopByPlayers(0).isEmpty());
+
+        // Servers are reranked as they are polled, and offline servers are not ranked
+        aggregates.onStatus(address1, createResponse(address1, 40, 50));
+        aggregates.onFailure(address2, new ConnectException("Connection refused"));
+        assertEquals(Arrays.asList(address1, address3), getAddresses(aggregates.getTopByPlayers(3)));
+        assertEquals(Arrays.asList(address1, address3), getAddresses(aggregates.getTopByLatency(3)));
+
+        // Servers with the same value are ranked in the order they were first seen
+        aggregates.onStatus(address3, createResponse(address3, 40, 50));
+        assertEquals(Arrays.asList(address1, address3), getAddresses(aggregates.getTopByPlayers(2)));
+
+        aggregates.remove(address1);
+        assertEquals(Collections.singletonList(address3), getAddresses(aggregates.getTopByPlayers(3)));
+    }
+
+
+    private static void assertAggregate(StatusAggregates.Aggregate aggregate, long servers, long onlineServers, long players) {
+        assertEquals(servers, aggregate.getServerCount());
+        assertEquals(onlineServers, aggregate.getOnlineServerCount());
+        assertEquals(players, aggregate.getPlayerCount());
+    }
+
+    private static List<Address> getAddresses(List<StatusAggregates.Ranked> ranking) {
+        List<Address> addresses = new ArrayList<>();
+        for (StatusAggregates.Ranked ranked : ranking) {
+            addresses.add(ranked.getAddress());
+        }
+        return addresses;
+    }
+
+    private static PingResponse createResponse(Address address, int online, int latency) {
+        return new PingResponse(address, new Description("A Minecraft Server"),
+                new PingResponse.PlayersStatus(100, online, Collections.<PingResponse.Player>emptyList()), latency);
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StatusHistoryTest {
+
+    private Address address;
+
+    @Before
+    public void createAddress() throws Exception {
+        address = new Address("localhost");
+    }
+
+
+    @Test
+    public void testRecordAndQuery() throws Exception {
+        StatusHistory history = new StatusHistory(100);
+        // Decreasing values, offline samples, and large values are encoded as deltas as well
+        history.record(address, 1000, 10, 100, 50);
+        history.record(address, 2000, 3, 100, 20);
+        history.record(address, 3000, -1, -1, -1);
+        history.record(address, 4000, Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+        history.record(address, 5000, 0, 20, Integer.MAX_VALUE);
+
+        StatusHistory.Samples samples = history.query(address, 0, Long.MAX_VALUE);
+        assertEquals(5, samples.size());
+        assertSample(samples, 0, 1000, 10, 100, 50);
+        assertSample(samples, 1, 2000, 3, 100, 20);
+        assertSample(samples, 2, 3000, -1, -1, -1);
+        assertSample(samples, 3, 4000, Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+        assertSample(samples, 4, 5000, 0, 20, Integer.MAX_VALUE);
+
+        samples = history.query(address, 2000, 4000);
+        assertEquals(2, samples.size());
+        assertEquals(2000, samples.getTime(0));
+        assertEquals(3000, samples.getTime(1));
+
+        assertEquals(0, history.query(new Address("other.example.com"), 0, Long.MAX_VALUE).size());
+        history.remove(address);
+        assertEquals(0, history.size(address));
+    }
+
+    @Test
+    public void testRingWraparound() {
+        // Two blocks of 64 samples are retained, so at least 64 of the latest samples are always kept
+        StatusHistory history = new StatusHistory(64);
+        for (int i = 0; i < 64; i++) {
+            history.record(address, i * 1000, i, 100, i % 7);
+        }
+        assertEquals(64, history.size(address));
+        long encodedSize = history.getEncodedSize();
+
+        for (int i = 64; i < 200; i++) {
+            history.record(address, i * 1000, i, 100, i % 7);
+        }
+        // The oldest block is dropped once both blocks are full, and its memory is reused for the newest block
+        assertEquals(64 + 8, history.size(address));
+        assertEquals(2 * encodedSize, history.getEncodedSize());
+
+        StatusHistory.Samples samples = history.query(address, 0, Long.MAX_VALUE);
+        assertEquals(72, samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            assertSample(samples, i, (128 + i) * 1000, 128 + i, 100, (128 + i) % 7);
+        }
+    }
+
+    @Test
+    public void testDownsample() {
+        StatusHistory history = new StatusHistory(100);
+        history.record(address, 1000, 10, 100, 40);
+        history.record(address, 5000, 20, 120, 60);
+        history.record(address, 9000, -1, -1, -1);
+        history.record(address, 21000, -1, -1, -1);
+        history.record(address, 31000, 5, 100, 10);
+
+        StatusHistory.Samples buckets = history.downsample(address, 0, 40000, 10000);
+        assertEquals(3, buckets.size());
+        // Offline samples are excluded from the averages, and buckets without samples are omitted
+        assertSample(buckets, 0, 0, 15, 120, 50);
+        assertSample(buckets, 1, 20000, -1, -1, -1);
+        assertSample(buckets, 2, 30000, 5, 100, 10);
+    }
+
+
+    private static void assertSample(StatusHistory.Samples samples, int index, long time, int count, int max, int latency) {
+        assertEquals(time, samples.getTime(index));
+        assertEquals(count, samples.getCount(index));
+        assertEquals(max, samples.getMax(index));
+        assertEquals(latency, samples.getLatency(index));
+    }
+
+}
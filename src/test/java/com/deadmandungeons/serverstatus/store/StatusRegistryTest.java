@@ -0,0 +1,239 @@
+package com.deadmandungeons.serverstatus.store;
+
+import com.deadmandungeons.serverstatus.MinecraftServer.Address;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StatusRegistryTest {
+
+    @Test
+    public void testHashCollisions() throws Exception {
+        // The host hashes differ by 1 and the ports by 31, so the addresses have exactly the same hash
+        Address first = new Address("server-a", 25596);
+        Address second = new Address("server-b", 25565);
+        Address third = new Address("server-c", 25565);
+        assertEquals(first.hashCode(), second.hashCode());
+
+        StatusRegistry registry = new StatusRegistry();
+        StatusSnapshot firstStatus = snapshot(first, 1);
+        StatusSnapshot secondStatus = snapshot(second, 1);
+        registry.publish(firstStatus);
+        registry.publish(secondStatus);
+        registry.publish(snapshot(third, 1));
+        assertEquals(3, registry.size());
+        assertSame(firstStatus, registry.get(first));
+        assertSame(secondStatus, registry.get(second));
+        assertNull(registry.get(new Address("server-a", 25565)));
+
+        StatusSnapshot newSecondStatus = snapshot(second, 2);
+        assertSame(secondStatus, registry.publish(newSecondStatus));
+        assertEquals(3, registry.size());
+        assertSame(newSecondStatus, registry.get(second));
+
+        // Removing one of the two colliding values leaves the other, and does not change a snapshot taken before
+        StatusRegistry.Snapshot before = registry.snapshot();
+        assertSame(firstStatus, registry.remove(first));
+        assertNull(registry.remove(first));
+        assertEquals(2, registry.size());
+        assertNull(registry.get(first));
+        assertSame(newSecondStatus, registry.get(second));
+        assertEquals(setOf(second, third), getAddresses(registry.snapshot()));
+        assertSame(firstStatus, before.get(first));
+        assertEquals(setOf(first, second, third), getAddresses(before));
+
+        // The remaining colliding value can still be replaced and removed
+        StatusSnapshot lastSecondStatus = snapshot(second, 3);
+        assertSame(newSecondStatus, registry.publish(lastSecondStatus));
+        assertSame(lastSecondStatus, registry.get(second));
+        assertSame(lastSecondStatus, registry.remove(second));
+        assertNull(registry.get(second));
+        assertEquals(setOf(third), getAddresses(registry.snapshot()));
+    }
+
+    @Test
+    public void testRemoveCollapsesPath() throws Exception {
+        StatusRegistry registry = new StatusRegistry();
+        Address first = new Address("server0.example.com");
+
+        // Find addresses whose hashes share the first bits of the first address, so they are all below a child node
+        List<Address> siblings = new ArrayList<>();
+        for (int i = 1; siblings.size() < 3; i++) {
+            Address candidate = new Address("server" + i + ".example.com");
+            if ((hash(candidate) & 31) == (hash(first) & 31)) {
+                siblings.add(candidate);
+            }
+        }
+        StatusSnapshot firstStatus = snapshot(first, 1);
+        registry.publish(firstStatus);
+        for (Address sibling : siblings) {
+            registry.publish(snapshot(sibling, 1));
+        }
+        StatusRegistry.Snapshot full = registry.snapshot();
+
+        // Removing the siblings one by one collapses the path, and the remaining values can still be found and replaced
+        for (int i = 0; i < siblings.size(); i++) {
+            assertNotNull(registry.remove(siblings.get(i)));
+            assertNull(registry.get(siblings.get(i)));
+            assertSame(firstStatus, registry.get(first));
+            for (Address remaining : siblings.subList(i + 1, siblings.size())) {
+                assertNotNull(registry.get(remaining));
+            }
+            assertEquals(siblings.size() - i, registry.size());
+            assertEquals(registry.size(), getAddresses(registry.snapshot()).size());
+        }
+        StatusSnapshot newFirstStatus = snapshot(first, 2);
+        assertSame(firstStatus, registry.publish(newFirstStatus));
+        assertEquals(setOf(first), getAddresses(registry.snapshot()));
+
+        // A sibling published again is found below the collapsed path
+        registry.publish(snapshot(siblings.get(0), 2));
+        assertSame(newFirstStatus, registry.get(first));
+        assertEquals(2, registry.get(siblings.get(0)).getTime());
+
+        registry.remove(first);
+        registry.remove(siblings.get(0));
+        assertEquals(0, registry.size());
+        assertFalse(registry.snapshot().iterator().hasNext());
+
+        // The snapshot taken before the removals is unaffected by them
+        assertEquals(siblings.size() + 1, full.size());
+        assertSame(firstStatus, full.get(first));
+        for (Address sibling : siblings) {
+            assertEquals(1, full.get(sibling).getTime());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsUnaffectedByWriters() throws Exception {
+        final StatusRegistry registry = new StatusRegistry();
+        final Address[] addresses = new Address[500];
+        final Address[] newAddresses = new Address[addresses.length];
+        Map<StatusSnapshot, Boolean> published = new IdentityHashMap<>();
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = new Address("server" + i + ".example.com");
+            newAddresses[i] = new Address("new" + i + ".example.com");
+            StatusSnapshot status = snapshot(addresses[i], 1);
+            registry.publish(status);
+            published.put(status, true);
+        }
+        StatusRegistry.Snapshot snapshot = registry.snapshot();
+
+        final CountDownLatch started = new CountDownLatch(1);
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                started.countDown();
+                for (int round = 2; round < 20; round++) {
+                    for (int i = 0; i < addresses.length; i++) {
+                        if (i % 2 == 0) {
+                            registry.remove(addresses[i]);
+                        } else {
+                            registry.publish(snapshot(addresses[i], round));
+                        }
+                        registry.publish(snapshot(newAddresses[i], round));
+                    }
+                }
+            }
+        };
+        writer.start();
+        started.await();
+        try {
+            while (writer.isAlive()) {
+                assertSnapshot(snapshot, addresses, published);
+            }
+        } finally {
+            writer.join();
+        }
+        assertSnapshot(snapshot, addresses, published);
+        assertEquals(addresses.length / 2 + newAddresses.length, registry.size());
+    }
+
+    @Test
+    public void testIteratorCompleteness() throws Exception {
+        StatusRegistry registry = new StatusRegistry();
+        Set<Address> expected = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            expected.add(new Address("server" + i + ".example.com", 25565 + i % 3));
+        }
+        // Colliding addresses are iterated from collision nodes
+        expected.add(new Address("server-a", 25596));
+        expected.add(new Address("server-b", 25565));
+        for (Address address : expected) {
+            registry.publish(snapshot(address, 1));
+        }
+        for (int i = 0; i < 2000; i += 7) {
+            Address address = new Address("server" + i + ".example.com", 25565 + i % 3);
+            registry.remove(address);
+            expected.remove(address);
+        }
+
+        Set<Address> iterated = new HashSet<>();
+        Iterator<StatusSnapshot> iterator = registry.snapshot().iterator();
+        while (iterator.hasNext()) {
+            assertTrue(iterated.add(iterator.next().getAddress()));
+        }
+        assertEquals(expected, iterated);
+        assertEquals(expected.size(), registry.size());
+        try {
+            iterator.next();
+            fail("Expected the iterator to be exhausted");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+
+    private static void assertSnapshot(StatusRegistry.Snapshot snapshot, Address[] addresses, Map<StatusSnapshot, Boolean> published) {
+        assertEquals(addresses.length, snapshot.size());
+        int count = 0;
+        for (StatusSnapshot status : snapshot) {
+            assertTrue(published.containsKey(status));
+            count++;
+        }
+        assertEquals(addresses.length, count);
+        for (Address address : addresses) {
+            assertTrue(published.containsKey(snapshot.get(address)));
+        }
+    }
+
+    private static Set<Address> getAddresses(StatusRegistry.Snapshot snapshot) {
+        Set<Address> addresses = new HashSet<>();
+        for (StatusSnapshot status : snapshot) {
+            assertTrue(addresses.add(status.getAddress()));
+        }
+        return addresses;
+    }
+
+    private static Set<Address> setOf(Address... addresses) {
+        return new HashSet<>(Arrays.asList(addresses));
+    }
+
+    // The same spreading of the address hash as the registry
+    private static int hash(Address address) {
+        int hash = address.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static StatusSnapshot snapshot(Address address, long time) {
+        return new StatusSnapshot(address, time, null);
+    }
+
+}
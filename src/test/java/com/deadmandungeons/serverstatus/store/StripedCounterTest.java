@@ -0,0 +1,46 @@
+package com.deadmandungeons.serverstatus.store;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class StripedCounterTest {
+
+    @Test
+    public void testAddAndSum() {
+        StripedCounter counter = new StripedCounter();
+        assertEquals(0, counter.sum());
+        counter.add(5);
+        counter.add(-7);
+        assertEquals(-2, counter.sum());
+    }
+
+    @Test
+    public void testConcurrentAdditions() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final int delta = i % 2 == 0 ? 3 : -1;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.add(delta);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Every stripe is summed once the additions have completed
+        assertEquals(4 * 10000 * 3 - 4 * 10000, counter.sum());
+    }
+
+}